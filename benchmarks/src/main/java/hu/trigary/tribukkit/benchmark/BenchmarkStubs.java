@@ -0,0 +1,143 @@
+package hu.trigary.tribukkit.benchmark;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Stub implementations of the Bukkit interfaces the benchmarks need.
+ * There is no server running in the benchmark JVM, therefore only
+ * the methods which the library calls on these objects are implemented,
+ * all other methods throw {@link UnsupportedOperationException}.
+ */
+final class BenchmarkStubs {
+	private static final Map<String, World> WORLDS = new ConcurrentHashMap<>();
+	
+	private BenchmarkStubs() {}
+	
+	
+	
+	/**
+	 * Creates a world stub which only supports its name, its UID and the {@link Object} methods.
+	 * The world is also made available through {@link Bukkit#getWorld(String)} and {@link Bukkit#getWorld(UUID)},
+	 * installing the server stub if it isn't installed yet.
+	 *
+	 * @param name the name of the world
+	 * @return the new world stub
+	 */
+	static World world(String name) {
+		installServer();
+		UUID id = UUID.nameUUIDFromBytes(name.getBytes());
+		World world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getName":
+						case "toString":
+							return name;
+						case "getUID":
+							return id;
+						case "hashCode":
+							return id.hashCode();
+						case "equals":
+							return proxy == args[0];
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		WORLDS.put(name, world);
+		return world;
+	}
+	
+	/**
+	 * Creates an entity stub which only supports the getLocation methods.
+	 * Like the real implementation, {@link Entity#getLocation()} allocates a new instance,
+	 * while {@link Entity#getLocation(Location)} copies the position into the specified instance.
+	 *
+	 * @param location the location of the entity
+	 * @return the new entity stub
+	 */
+	static Entity entity(Location location) {
+		return (Entity) Proxy.newProxyInstance(Entity.class.getClassLoader(), new Class<?>[]{Entity.class},
+				(proxy, method, args) -> {
+					if (!method.getName().equals("getLocation")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					
+					if (args == null || args[0] == null) {
+						return location.clone();
+					}
+					Location target = (Location) args[0];
+					target.setWorld(location.getWorld());
+					target.setX(location.getX());
+					target.setY(location.getY());
+					target.setZ(location.getZ());
+					target.setYaw(location.getYaw());
+					target.setPitch(location.getPitch());
+					return target;
+				});
+	}
+	
+	/**
+	 * Installs a server stub (unless one is already installed) which only supports
+	 * looking up the worlds created by {@link #world(String)} and the methods {@link Bukkit#setServer(Server)} calls.
+	 * The library resolves the worlds of regions through the server.
+	 */
+	private static synchronized void installServer() {
+		if (Bukkit.getServer() != null) {
+			return;
+		}
+		
+		Bukkit.setServer((Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[]{Server.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getWorld":
+							if (args[0] instanceof String) {
+								return WORLDS.get(args[0]);
+							}
+							return WORLDS.values().stream()
+									.filter(world -> world.getUID().equals(args[0]))
+									.findAny().orElse(null);
+						case "getWorlds":
+							return new ArrayList<>(WORLDS.values());
+						case "getLogger":
+							return Logger.getLogger("BenchmarkServer");
+						case "getName":
+						case "toString":
+							return "BenchmarkServer";
+						case "getVersion":
+						case "getBukkitVersion":
+							return "stub";
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				}));
+	}
+	
+	/**
+	 * Creates a context stub, which is not used by the library's data types.
+	 *
+	 * @return the new context stub
+	 */
+	static PersistentDataAdapterContext adapterContext() {
+		return (PersistentDataAdapterContext) Proxy.newProxyInstance(
+				PersistentDataAdapterContext.class.getClassLoader(),
+				new Class<?>[]{PersistentDataAdapterContext.class},
+				(proxy, method, args) -> {
+					throw new UnsupportedOperationException(method.getName());
+				});
+	}
+}
@@ -0,0 +1,96 @@
+package hu.trigary.tribukkit.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import hu.trigary.tribukkit.json.JsonIO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of saving and loading data files via {@link JsonIO}.
+ * The data is a list of player records, similar to what plugins usually store;
+ * it is generated with a fixed seed, so the results are reproducible.
+ * The files are written to a temporary directory, therefore the results include the file system overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonIOBenchmark {
+	private static final Type TYPE = new TypeToken<List<PlayerRecord>>() {}.getType();
+	
+	@Param({"10", "1000", "100000"})
+	public int size;
+	
+	private final Gson gson = new GsonBuilder().create();
+	private File directory;
+	private File saveFile;
+	private File loadFile;
+	private List<PlayerRecord> data;
+	
+	@Setup
+	public void setup() throws IOException {
+		Random random = new Random(42);
+		data = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			data.add(new PlayerRecord(new UUID(random.nextLong(), random.nextLong()),
+					"player" + i, random.nextInt(1000), random.nextDouble() * 10000));
+		}
+		
+		directory = Files.createTempDirectory("tribukkit-benchmark").toFile();
+		saveFile = new File(directory, "save.json");
+		loadFile = new File(directory, "load.json");
+		JsonIO.save(gson, loadFile, TYPE, data);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		//noinspection ResultOfMethodCallIgnored
+		saveFile.delete();
+		//noinspection ResultOfMethodCallIgnored
+		loadFile.delete();
+		//noinspection ResultOfMethodCallIgnored
+		directory.delete();
+	}
+	
+	
+	
+	@Benchmark
+	public void save() {
+		JsonIO.save(gson, saveFile, TYPE, data);
+	}
+	
+	@Benchmark
+	public List<PlayerRecord> load() {
+		return JsonIO.load(gson, loadFile, TYPE, null);
+	}
+	
+	
+	
+	@SuppressWarnings({"unused", "FieldCanBeLocal"})
+	private static class PlayerRecord {
+		private final UUID id;
+		private final String name;
+		private final int kills;
+		private final double balance;
+		
+		PlayerRecord(UUID id, String name, int kills, double balance) {
+			this.id = id;
+			this.name = name;
+			this.kills = kills;
+			this.balance = balance;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package hu.trigary.tribukkit.benchmark;
+
+import hu.trigary.tribukkit.message.Messages;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the placeholder replacement in {@link Messages}
+ * with typical chat message lengths and placeholder counts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagesBenchmark {
+	private final String singleMessage = "&aWelcome back, &e{player}&a! Have fun on the server.";
+	private final String multiMessage = "&e{killer} &7killed &e{victim} &7using &b{weapon}"
+			+ " &7from &c{distance} &7blocks away. &8[&7{time}&8]";
+	private final String[] placeholders = {
+			"{killer}", "Trigary",
+			"{victim}", "Notch",
+			"{weapon}", "Diamond Sword",
+			"{distance}", "12.5",
+			"{time}", "12:34"
+	};
+	
+	
+	
+	@Benchmark
+	public String formatSingle() {
+		return Messages.format(singleMessage, "{player}", "Trigary");
+	}
+	
+	@Benchmark
+	public String formatSingleObject() {
+		return Messages.format(singleMessage, "{player}", (Object) 12345);
+	}
+	
+	@Benchmark
+	public String formatMultiple() {
+		return Messages.format(multiMessage, placeholders);
+	}
+	
+	@Benchmark
+	public String color() {
+		return Messages.color(multiMessage);
+	}
+}
@@ -0,0 +1,83 @@
+package hu.trigary.tribukkit.benchmark;
+
+import hu.trigary.tribukkit.persistent.StringArrayDataType;
+import hu.trigary.tribukkit.persistent.UUIDArrayDataType;
+import hu.trigary.tribukkit.persistent.UUIDDataType;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization and deserialization cost of the custom persistent data types.
+ * The arrays are generated with a fixed seed, so the results are reproducible.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistentDataTypeBenchmark {
+	@Param({"1", "16", "256"})
+	public int size;
+	
+	private PersistentDataAdapterContext context;
+	private UUID uuid;
+	private byte[] uuidBytes;
+	private UUID[] uuidArray;
+	private byte[] uuidArrayBytes;
+	private String[] stringArray;
+	private byte[] stringArrayBytes;
+	
+	@Setup
+	public void setup() {
+		context = BenchmarkStubs.adapterContext();
+		Random random = new Random(42);
+		uuid = new UUID(random.nextLong(), random.nextLong());
+		uuidBytes = UUIDDataType.INSTANCE.toPrimitive(uuid, context);
+		
+		uuidArray = new UUID[size];
+		stringArray = new String[size];
+		for (int i = 0; i < size; i++) {
+			uuidArray[i] = new UUID(random.nextLong(), random.nextLong());
+			stringArray[i] = "lore line " + i + ": " + Long.toHexString(random.nextLong());
+		}
+		uuidArrayBytes = UUIDArrayDataType.INSTANCE.toPrimitive(uuidArray, context);
+		stringArrayBytes = StringArrayDataType.INSTANCE.toPrimitive(stringArray, context);
+	}
+	
+	
+	
+	@Benchmark
+	public byte[] uuidToPrimitive() {
+		return UUIDDataType.INSTANCE.toPrimitive(uuid, context);
+	}
+	
+	@Benchmark
+	public UUID uuidFromPrimitive() {
+		return UUIDDataType.INSTANCE.fromPrimitive(uuidBytes, context);
+	}
+	
+	@Benchmark
+	public byte[] uuidArrayToPrimitive() {
+		return UUIDArrayDataType.INSTANCE.toPrimitive(uuidArray, context);
+	}
+	
+	@Benchmark
+	public UUID[] uuidArrayFromPrimitive() {
+		return UUIDArrayDataType.INSTANCE.fromPrimitive(uuidArrayBytes, context);
+	}
+	
+	@Benchmark
+	public byte[] stringArrayToPrimitive() {
+		return StringArrayDataType.INSTANCE.toPrimitive(stringArray, context);
+	}
+	
+	@Benchmark
+	public String[] stringArrayFromPrimitive() {
+		return StringArrayDataType.INSTANCE.fromPrimitive(stringArrayBytes, context);
+	}
+}
@@ -0,0 +1,103 @@
+package hu.trigary.tribukkit.benchmark;
+
+import hu.trigary.tribukkit.region.*;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares checking many positions one at a time against the batch methods
+ * ({@link Region#isInsideEach(World, int[], int[], int[])} and {@link Region#isInsideEach(java.util.Collection)}).
+ * All positions are in the region's world and uniformly distributed around the region.
+ * The entity stubs are dynamic proxies, their dispatch cost is included in both entity benchmarks.
+ * A fixed seed is used, so the results are reproducible.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegionBatchBenchmark {
+	private static final int POSITION_COUNT = 512;
+	
+	@Param({"BOX", "CYLINDER", "POLYGON"})
+	public String regionType;
+	
+	private Region region;
+	private World world;
+	private int[] xs;
+	private int[] ys;
+	private int[] zs;
+	private List<Entity> entities;
+	
+	@Setup
+	public void setup() {
+		world = BenchmarkStubs.world("world");
+		switch (regionType) {
+			case "BOX":
+				region = new BoxRegion("world", -50, 50, 0, 128, -50, 50);
+				break;
+			case "CYLINDER":
+				region = new CylinderRegion("world", 0, 0, 56, 0, 128);
+				break;
+			case "POLYGON":
+				region = new PolygonRegion("world", new int[]{-60, 60, 40, -20}, new int[]{-50, -60, 70, 40}, 0, 128);
+				break;
+			default:
+				throw new IllegalArgumentException(regionType);
+		}
+		
+		Random random = new Random(42);
+		xs = new int[POSITION_COUNT];
+		ys = new int[POSITION_COUNT];
+		zs = new int[POSITION_COUNT];
+		entities = new ArrayList<>(POSITION_COUNT);
+		for (int i = 0; i < POSITION_COUNT; i++) {
+			Location location = new Location(world, random.nextDouble() * 160 - 80,
+					random.nextDouble() * 256, random.nextDouble() * 160 - 80);
+			xs[i] = location.getBlockX();
+			ys[i] = location.getBlockY();
+			zs[i] = location.getBlockZ();
+			entities.add(BenchmarkStubs.entity(location));
+		}
+	}
+	
+	
+	
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public void positionEach(Blackhole blackhole) {
+		for (int i = 0; i < POSITION_COUNT; i++) {
+			blackhole.consume(region.isInside(world, xs[i], ys[i], zs[i]));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public BitSet positionBatch() {
+		return region.isInsideEach(world, xs, ys, zs);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public void entityEach(Blackhole blackhole) {
+		for (Entity entity : entities) {
+			blackhole.consume(region.isInside(entity));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public BitSet entityBatch() {
+		return region.isInsideEach(entities);
+	}
+}
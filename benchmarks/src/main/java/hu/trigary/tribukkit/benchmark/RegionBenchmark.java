@@ -0,0 +1,112 @@
+package hu.trigary.tribukkit.benchmark;
+
+import hu.trigary.tribukkit.region.*;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link Region#isInside(Location)} and its primitive overloads for each region type.
+ * The locations are uniformly distributed around the region (about half of them are inside it),
+ * a quarter of them are in another world. A fixed seed is used, so the results are reproducible.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegionBenchmark {
+	private static final int LOCATION_COUNT = 1024;
+	
+	@Param({"WORLD", "RECTANGLE", "BOX", "CIRCLE", "CYLINDER", "SPHERE"})
+	public String regionType;
+	
+	private Region region;
+	private Location[] locations;
+	private World[] worlds;
+	private UUID[] worldIds;
+	private int[] blockCoordinates;
+	private double[] coordinates;
+	
+	@Setup
+	public void setup() {
+		World world = BenchmarkStubs.world("world");
+		World otherWorld = BenchmarkStubs.world("world_nether");
+		switch (regionType) {
+			case "WORLD":
+				region = new WorldRegion("world");
+				break;
+			case "RECTANGLE":
+				region = new RectangleRegion("world", -50, 50, -50, 50);
+				break;
+			case "BOX":
+				region = new BoxRegion("world", -50, 50, 0, 128, -50, 50);
+				break;
+			case "CIRCLE":
+				region = new CircleRegion("world", 0, 0, 56);
+				break;
+			case "CYLINDER":
+				region = new CylinderRegion("world", 0, 0, 56, 0, 128);
+				break;
+			case "SPHERE":
+				region = new SphereRegion("world", 0, 64, 0, 72);
+				break;
+			default:
+				throw new IllegalArgumentException(regionType);
+		}
+		
+		Random random = new Random(42);
+		locations = new Location[LOCATION_COUNT];
+		worlds = new World[LOCATION_COUNT];
+		worldIds = new UUID[LOCATION_COUNT];
+		blockCoordinates = new int[LOCATION_COUNT * 3];
+		coordinates = new double[LOCATION_COUNT * 3];
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			Location location = new Location(random.nextInt(4) == 0 ? otherWorld : world,
+					random.nextDouble() * 160 - 80, random.nextDouble() * 256, random.nextDouble() * 160 - 80);
+			locations[i] = location;
+			worlds[i] = location.getWorld();
+			worldIds[i] = location.getWorld().getUID();
+			blockCoordinates[i * 3] = location.getBlockX();
+			blockCoordinates[i * 3 + 1] = location.getBlockY();
+			blockCoordinates[i * 3 + 2] = location.getBlockZ();
+			coordinates[i * 3] = location.getX();
+			coordinates[i * 3 + 1] = location.getY();
+			coordinates[i * 3 + 2] = location.getZ();
+		}
+	}
+	
+	
+	
+	@Benchmark
+	@OperationsPerInvocation(LOCATION_COUNT)
+	public void isInside(Blackhole blackhole) {
+		for (Location location : locations) {
+			blackhole.consume(region.isInside(location));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(LOCATION_COUNT)
+	public void isInsideWorld(Blackhole blackhole) {
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			blackhole.consume(region.isInside(worlds[i], blockCoordinates[i * 3],
+					blockCoordinates[i * 3 + 1], blockCoordinates[i * 3 + 2]));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(LOCATION_COUNT)
+	public void isInsideWorldId(Blackhole blackhole) {
+		for (int i = 0; i < LOCATION_COUNT; i++) {
+			blackhole.consume(region.isInside(worldIds[i], coordinates[i * 3],
+					coordinates[i * 3 + 1], coordinates[i * 3 + 2]));
+		}
+	}
+}
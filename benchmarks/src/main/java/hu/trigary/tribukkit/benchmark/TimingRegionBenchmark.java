@@ -0,0 +1,91 @@
+package hu.trigary.tribukkit.benchmark;
+
+import hu.trigary.tribukkit.timing.TimingKey;
+import hu.trigary.tribukkit.timing.TimingManager;
+import hu.trigary.tribukkit.timing.TimingRegion;
+import hu.trigary.tribukkit.timing.TimingStorageType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a {@link TimingRegion} when the {@link TimingManager} is disabled and when it is enabled.
+ * The {@link TimingManager} can't be disabled once it's enabled, therefore each benchmark runs in its own fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimingRegionBenchmark {
+	private static final TimingKey KEY = TimingManager.key("benchmark-key");
+	private static final TimingKey SAMPLED_KEY = TimingManager.key("benchmark-sampled");
+	
+	static {
+		SAMPLED_KEY.setSampleRate(64);
+	}
+	
+	@State(Scope.Benchmark)
+	public static class EnabledState {
+		@Param({"COMPACT", "HISTOGRAM"})
+		public TimingStorageType storageType;
+		
+		@Setup
+		public void setup() {
+			TimingManager.enable(storageType);
+		}
+	}
+	
+	
+	
+	@Benchmark
+	public void baseline(Blackhole blackhole) {
+		blackhole.consume(1);
+	}
+	
+	@Benchmark
+	public void disabled(Blackhole blackhole) {
+		try (TimingRegion ignored = TimingRegion.of("benchmark")) {
+			blackhole.consume(1);
+		}
+	}
+	
+	@Benchmark
+	public void enabled(EnabledState state, Blackhole blackhole) {
+		try (TimingRegion ignored = TimingRegion.of("benchmark")) {
+			blackhole.consume(1);
+		}
+	}
+	
+	@Benchmark
+	public void enabledKey(EnabledState state, Blackhole blackhole) {
+		try (TimingRegion ignored = TimingRegion.of(KEY)) {
+			blackhole.consume(1);
+		}
+	}
+	
+	@Benchmark
+	public void enabledSampled(EnabledState state, Blackhole blackhole) {
+		try (TimingRegion ignored = TimingRegion.of(SAMPLED_KEY)) {
+			blackhole.consume(1);
+		}
+	}
+	
+	@Benchmark
+	public void enabledNested(EnabledState state, Blackhole blackhole) {
+		try (TimingRegion ignored = TimingRegion.of("outer")) {
+			try (TimingRegion ignored2 = TimingRegion.of("inner")) {
+				blackhole.consume(1);
+			}
+		}
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public void enabledContended(EnabledState state, Blackhole blackhole) {
+		try (TimingRegion ignored = TimingRegion.of("benchmark")) {
+			blackhole.consume(1);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package hu.trigary.tribukkit.benchmark;
+
+import hu.trigary.tribukkit.random.WeightedRandomCollection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link WeightedRandomCollection#getRandom()} for different collection sizes,
+ * eg. a loot table (10 entries) or a large spawn table (10000 entries).
+ * The weights are generated with a fixed seed, so the results are reproducible.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeightedRandomBenchmark {
+	@Param({"10", "100", "10000"})
+	public int size;
+	
+	private WeightedRandomCollection<Integer> collection;
+	
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		Map<Integer, Double> source = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			source.put(i, 0.1 + random.nextDouble() * 10);
+		}
+		collection = new WeightedRandomCollection<>(source);
+	}
+	
+	
+	
+	@Benchmark
+	public Integer getRandom() {
+		return collection.getRandom();
+	}
+}
@@ -1,5 +1,7 @@
 package hu.trigary.tribukkit;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import org.apache.commons.lang.StringUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -8,36 +10,89 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
  * A cache responsible for storing player name-UUID pairs.
- * These values are loaded from {@link Bukkit#getOfflinePlayers()} on class instance creation,
- * and are updated on-the-fly when players log in ({@link AsyncPlayerPreLoginEvent})
+ * These values are updated on-the-fly when players log in ({@link AsyncPlayerPreLoginEvent})
  * or when a Mojang API lookup is executed through this class.
  * Data can also be manually added and removed.
  * All methods are thread-safe.
  * <br><br>
+ * The cache is persisted in the {@code "name-id-cache.bin"} file of the plugin's data folder.
+ * Each change is appended to this file as a record (type, fixed-width UUID, length-prefixed name),
+ * the records are flushed to the disk periodically and when the plugin gets disabled.
+ * On class instance creation this file is loaded on a background thread
+ * (see {@link #getLoadFuture()}), compacting it if it contains too many outdated records.
+ * If the file doesn't exist yet, then the values are loaded from {@link Bukkit#getOfflinePlayers()} instead.
+ * <br><br>
+ * The data is stored in concurrent maps: reads never block, writes are serialized.
+ * Writes keep the two directions consistent: when a player changes their name
+ * or a name gets taken by another player, the stale pairs are removed.
+ * A concurrent reader may observe one direction of a write before the other one.
+ * <br><br>
+ * Lookups are deduplicated: while a lookup for a name or UUID is in progress,
+ * all other lookups for the same name or UUID share its result instead of sending another request.
+ * Many names can be resolved at once using {@link #resolveIds(Collection)}.
+ * <br><br>
+ * All requests share a token bucket rate limiter (a burst of 10 requests, then one request per 1.1 seconds),
+ * so that traffic spikes stay under the Mojang API's quota: requests over the limit are delayed.
+ * Requests which fail due to rate limiting (429) or server errors (5xx) are retried
+ * with jittered exponential backoff (honoring the Retry-After header), as long as the total delay stays under 5 seconds.
+ * Blocking lookups are never delayed: they fail if the rate limit is reached, they aren't retried
+ * and they wait at most 5 seconds for the result. They share the result of a lookup which is already in progress,
+ * but their own requests aren't shared with other lookups. Names and UUIDs which don't belong to any player
+ * are remembered for 10 minutes: lookups for them return an empty result without querying the API.
+ * <br><br>
  * There are 4 ways to do get data: (A cached value is always returned if it is present.)
  * <ul>
  * <li>{@code getId/getName}: cached value, no lookups are involved</li>
  * <li>{@code LookUpBlocking}: cached value or query the value while blocking the current thread</li>
  * <li>{@code LookUpAsync}: cached value or query the value on a background thread,
- * also calling the callback on this background thread</li>
+ * also calling the callback (or completing the returned future) on this background thread</li>
  * <li>{@code LookUpNonBlocking}: cached value or query the value on a background thread,
  * but calling the callback on the main Bukkit thread</li>
  * </ul>
@@ -45,18 +100,80 @@ import java.util.logging.Level;
 public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	private static final String NAME_TO_ID_URL = "https://api.mojang.com/users/profiles/minecraft/";
 	private static final String ID_TO_NAME_URL = "https://sessionserver.mojang.com/session/minecraft/profile/";
-	private final Map<String, UUID> nameToId = new HashMap<>();
-	private final Map<UUID, String> idToName = new HashMap<>();
+	private static final String BULK_NAME_TO_ID_URL = "https://api.mojang.com/profiles/minecraft";
+	private static final int BULK_LOOKUP_MAX_NAMES = 10;
+	private static final int BULK_LOOKUP_MAX_CONCURRENCY = 2;
+	private static final int RATE_LIMIT_BURST = 10;
+	private static final long RATE_LIMIT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1100);
+	private static final int MAX_RETRIES = 4;
+	private static final long RETRY_BASE_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long MAX_RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(5);
+	private static final long BLOCKING_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+	private static final long UNKNOWN_TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+	private static final int UNKNOWN_SWEEP_INTERVAL = 1024;
+	private static final Gson GSON = new Gson();
+	private static final String SNAPSHOT_FILE_NAME = "name-id-cache.bin";
+	private static final int SNAPSHOT_MAGIC = 0x4E494331;
+	private static final int RECORD_PUT = 0;
+	private static final int RECORD_NAME = 1;
+	private static final int RECORD_ID = 2;
+	private static final int RECORD_REMOVE_NAME = 3;
+	private static final int RECORD_REMOVE_ID = 4;
+	private static final int FLUSH_INTERVAL_TICKS = 100;
+	private static final int COMPACTION_MIN_RECORDS = 1024;
+	private final Map<String, UUID> nameToId = new ConcurrentHashMap<>();
+	private final Map<UUID, String> idToName = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<Optional<UUID>>> idLookups = new ConcurrentHashMap<>();
+	private final Map<UUID, CompletableFuture<Optional<String>>> nameLookups = new ConcurrentHashMap<>();
+	private final Map<String, Long> unknownNames = new ConcurrentHashMap<>();
+	private final Map<UUID, Long> unknownIds = new ConcurrentHashMap<>();
+	private final RateLimiter rateLimiter = new RateLimiter(RATE_LIMIT_BURST, RATE_LIMIT_INTERVAL_NANOS);
 	private final JavaPlugin plugin;
 	private final HttpClient httpClient = HttpClient.newHttpClient();
+	private final CompletableFuture<Void> loadFuture = new CompletableFuture<>();
+	private final File snapshotFile;
+	private ByteArrayOutputStream pendingRecords;
+	private DataOutputStream snapshotOutput;
+	private BukkitTask flushTask;
+	private boolean closed;
 	
 	NameIdCache(JavaPlugin plugin) {
+		this(plugin, new File(plugin.getDataFolder(), SNAPSHOT_FILE_NAME));
+	}
+	
+	NameIdCache(JavaPlugin plugin, @Nullable File snapshotFile) {
 		this.plugin = plugin;
-		for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
-			if (player.getName() != null) {
-				putData(player.getName(), player.getUniqueId());
-			}
+		this.snapshotFile = snapshotFile;
+		if (snapshotFile == null) {
+			loadOfflinePlayers();
+			loadFuture.complete(null);
+			return;
+		}
+		
+		//changes made while loading are kept in memory and are replayed on top of the loaded data
+		pendingRecords = new ByteArrayOutputStream();
+		snapshotOutput = new DataOutputStream(pendingRecords);
+		boolean exists = snapshotFile.isFile();
+		if (!exists) {
+			loadOfflinePlayers();
 		}
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> loadSnapshot(exists));
+		flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin,
+				this::flushSnapshot, FLUSH_INTERVAL_TICKS, FLUSH_INTERVAL_TICKS);
+	}
+	
+	
+	
+	/**
+	 * Gets the future which is completed once the snapshot file has been loaded.
+	 * Until then only the pairs added since the creation of this instance are cached.
+	 *
+	 * @return the future which is completed when the cache is fully loaded
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public CompletableFuture<Void> getLoadFuture() {
+		return loadFuture;
 	}
 	
 	
@@ -68,8 +185,15 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	 * @param id the UUID of the player
 	 */
 	public synchronized void putData(@NotNull String name, @NotNull UUID id) {
-		nameToId.put(name.toLowerCase(), id);
-		idToName.put(id, name);
+		//while loading, records are replayed on top of the loaded data, they must not be skipped
+		if (pendingRecords == null && name.equals(idToName.get(id)) && id.equals(nameToId.get(toKey(name)))) {
+			return;
+		}
+		
+		writeRecord(RECORD_PUT, id, name);
+		putPair(nameToId, idToName, name, id);
+		unknownNames.remove(toKey(name));
+		unknownIds.remove(id);
 	}
 	
 	/**
@@ -79,7 +203,10 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	 * @param name the player name to remove
 	 */
 	public synchronized void removeData(@NotNull String name) {
-		nameToId.remove(name.toLowerCase());
+		UUID id = nameToId.remove(toKey(name));
+		if (id != null || pendingRecords != null) {
+			writeRecord(RECORD_REMOVE_NAME, id == null ? new UUID(0, 0) : id, name);
+		}
 	}
 	
 	/**
@@ -89,7 +216,10 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	 * @param id the player UUID to remove
 	 */
 	public synchronized void removeData(@NotNull UUID id) {
-		idToName.remove(id);
+		String name = idToName.remove(id);
+		if (name != null || pendingRecords != null) {
+			writeRecord(RECORD_REMOVE_ID, id, name == null ? "" : name);
+		}
 	}
 	
 	
@@ -104,14 +234,15 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	@Nullable
 	@Contract(pure = true)
 	public UUID getId(@NotNull String name) {
-		return nameToId.get(name.toLowerCase());
+		return nameToId.get(toKey(name));
 	}
 	
 	/**
 	 * Gets the cached UUID for the given name,
 	 * or queries it from the Mojang API if none is present.
 	 * Returns null only if the query failed.
-	 * This method blocks the thread it is called from.
+	 * This method blocks the thread it is called from, for at most 5 seconds.
+	 * The query fails immediately instead of waiting if the rate limit has been reached.
 	 *
 	 * @param name the player's name
 	 * @return the cached UUID or null, if the HTTP query failed
@@ -119,19 +250,23 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	@Nullable
 	public UUID getIdOrLookupBlocking(@NotNull String name) {
 		UUID cached = getId(name);
-		if (cached != null) {
-			return cached;
-		}
-		
-		try {
-			HttpRequest request = HttpRequest.newBuilder(URI.create(NAME_TO_ID_URL + name)).GET().build();
-			HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-			return handleIdLookup(response, name);
-		} catch (IOException | InterruptedException e) {
-			log(Level.SEVERE, "UUID lookup failed for name: " + name);
-			e.printStackTrace();
-			return null;
-		}
+		return cached != null ? cached : await(lookupId(name, true)).orElse(null);
+	}
+	
+	/**
+	 * Gets the cached UUID for the given name,
+	 * or queries it from the Mojang API if none is present.
+	 * The result is empty only if the query failed.
+	 * This method does not block, it uses a background thread.
+	 * The returned future is already completed if a cached value is present,
+	 * otherwise it is completed from the background thread.
+	 *
+	 * @param name the player's name
+	 * @return the future which will be completed with the result
+	 */
+	@NotNull
+	public CompletableFuture<Optional<UUID>> getIdOrLookupAsync(@NotNull String name) {
+		return lookupId(name, false);
 	}
 	
 	/**
@@ -145,14 +280,7 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	 * @param consumer the callback which handles the result
 	 */
 	public void getIdOrLookupAsync(@NotNull String name, @NotNull Consumer<Optional<UUID>> consumer) {
-		UUID cached = getId(name);
-		if (cached != null) {
-			consumer.accept(Optional.of(cached));
-		}
-		
-		HttpRequest request = HttpRequest.newBuilder(URI.create(NAME_TO_ID_URL + name)).GET().build();
-		httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-				.thenAccept(response -> consumer.accept(Optional.ofNullable(handleIdLookup(response, name))));
+		getIdOrLookupAsync(name).thenAccept(consumer);
 	}
 	
 	/**
@@ -169,6 +297,63 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 		getIdOrLookupAsync(name, id -> Bukkit.getScheduler().runTask(plugin, () -> consumer.accept(id)));
 	}
 	
+	/**
+	 * Gets the cached UUIDs for the given names,
+	 * querying the missing ones from the Mojang API in batches of at most 10 names,
+	 * with at most 2 batches being queried at the same time.
+	 * This method does not block, it uses a background thread.
+	 * The returned future is already completed if all values are cached,
+	 * otherwise it is completed from the background thread.
+	 * <br><br>
+	 * The result contains the specified names as keys, names which don't belong to any player
+	 * or whose query failed are not present.
+	 * Names which are known not to belong to any player are not queried.
+	 *
+	 * @param names the players' names
+	 * @return the future which will be completed with the UUIDs mapped by the names
+	 */
+	@NotNull
+	public CompletableFuture<Map<String, UUID>> resolveIds(@NotNull Collection<String> names) {
+		Map<String, UUID> result = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		Set<String> missingKeys = new HashSet<>();
+		for (String name : names) {
+			UUID cached = getId(name);
+			if (cached != null) {
+				result.put(name, cached);
+			} else if (!isUnknown(unknownNames, toKey(name)) && missingKeys.add(toKey(name))) {
+				missing.add(name);
+			}
+		}
+		
+		if (missing.isEmpty()) {
+			return CompletableFuture.completedFuture(Collections.unmodifiableMap(result));
+		}
+		
+		Queue<List<String>> batches = new ConcurrentLinkedQueue<>();
+		for (int i = 0; i < missing.size(); i += BULK_LOOKUP_MAX_NAMES) {
+			batches.add(missing.subList(i, Math.min(i + BULK_LOOKUP_MAX_NAMES, missing.size())));
+		}
+		
+		//each worker queries its next batch once the previous one is finished
+		Map<String, UUID> found = new ConcurrentHashMap<>();
+		CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(BULK_LOOKUP_MAX_CONCURRENCY,
+				batches.size())];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = resolveBatches(batches, found);
+		}
+		
+		return CompletableFuture.allOf(workers).thenApply(ignored -> {
+			for (String name : names) {
+				UUID id = found.get(toKey(name));
+				if (id != null) {
+					result.put(name, id);
+				}
+			}
+			return Collections.unmodifiableMap(result);
+		});
+	}
+	
 	
 	
 	/**
@@ -188,7 +373,8 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	 * Gets the cached name for the given UUID,
 	 * or queries it from the Mojang API if none is present.
 	 * Returns null only if the query failed.
-	 * This method blocks the thread it is called from.
+	 * This method blocks the thread it is called from, for at most 5 seconds.
+	 * The query fails immediately instead of waiting if the rate limit has been reached.
 	 *
 	 * @param id the player's UUID
 	 * @return the cached name or null, if the HTTP query failed
@@ -196,19 +382,23 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	@Nullable
 	public String getNameOrLookupBlocking(@NotNull UUID id) {
 		String cached = getName(id);
-		if (cached != null) {
-			return cached;
-		}
-		
-		try {
-			HttpRequest request = HttpRequest.newBuilder(URI.create(ID_TO_NAME_URL + toString(id))).GET().build();
-			HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-			return handleNameLookup(response, id);
-		} catch (IOException | InterruptedException e) {
-			log(Level.SEVERE, "Name lookup failed for UUID: " + id);
-			e.printStackTrace();
-			return null;
-		}
+		return cached != null ? cached : await(lookupName(id, true)).orElse(null);
+	}
+	
+	/**
+	 * Gets the cached name for the given UUID,
+	 * or queries it from the Mojang API if none is present.
+	 * The result is empty only if the query failed.
+	 * This method does not block, it uses a background thread.
+	 * The returned future is already completed if a cached value is present,
+	 * otherwise it is completed from the background thread.
+	 *
+	 * @param id the player's UUID
+	 * @return the future which will be completed with the result
+	 */
+	@NotNull
+	public CompletableFuture<Optional<String>> getNameOrLookupAsync(@NotNull UUID id) {
+		return lookupName(id, false);
 	}
 	
 	/**
@@ -222,14 +412,7 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	 * @param consumer the callback which handles the result
 	 */
 	public void getNameOrLookupAsync(@NotNull UUID id, @NotNull Consumer<Optional<String>> consumer) {
-		String cached = getName(id);
-		if (cached != null) {
-			consumer.accept(Optional.of(cached));
-		}
-		
-		HttpRequest request = HttpRequest.newBuilder(URI.create(ID_TO_NAME_URL + toString(id))).GET().build();
-		httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-				.thenAccept(response -> consumer.accept(Optional.ofNullable(handleNameLookup(response, id))));
+		getNameOrLookupAsync(id).thenAccept(consumer);
 	}
 	
 	/**
@@ -255,20 +438,369 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	
 	
 	
+	/**
+	 * Flushes and closes the snapshot file, no further changes are persisted.
+	 * Called when the plugin gets disabled.
+	 */
+	synchronized void close() {
+		closed = true;
+		if (flushTask != null) {
+			flushTask.cancel();
+		}
+		if (pendingRecords == null) {
+			closeSnapshot();
+		}
+	}
+	
+	
+	
+	private void loadOfflinePlayers() {
+		for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
+			if (player.getName() != null) {
+				putData(player.getName(), player.getUniqueId());
+			}
+		}
+	}
+	
+	private void loadSnapshot(boolean exists) {
+		Map<String, UUID> loadedNameToId = new HashMap<>();
+		Map<UUID, String> loadedIdToName = new HashMap<>();
+		boolean compact = !exists;
+		if (exists) {
+			try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(snapshotFile)))) {
+				if (input.readInt() != SNAPSHOT_MAGIC) {
+					throw new IOException("Invalid file header");
+				}
+				int records = readRecords(input, loadedNameToId, loadedIdToName);
+				compact = records > COMPACTION_MIN_RECORDS + 2 * Math.max(loadedNameToId.size(), loadedIdToName.size());
+			} catch (IOException e) {
+				log(Level.WARNING, "The snapshot file is damaged, only its readable records are kept: " + e);
+				compact = true;
+			}
+		}
+		finishLoading(loadedNameToId, loadedIdToName, compact);
+	}
+	
+	private synchronized void finishLoading(Map<String, UUID> loadedNameToId,
+			Map<UUID, String> loadedIdToName, boolean compact) {
+		byte[] pending = pendingRecords.toByteArray();
+		pendingRecords = null;
+		try {
+			readRecords(new DataInputStream(new ByteArrayInputStream(pending)), loadedNameToId, loadedIdToName);
+		} catch (IOException e) {
+			throw new AssertionError("Can't read in-memory records", e);
+		}
+		
+		//readers may briefly see a mix of the old and the new state, but never miss a pair present in both
+		nameToId.putAll(loadedNameToId);
+		nameToId.keySet().retainAll(loadedNameToId.keySet());
+		idToName.putAll(loadedIdToName);
+		idToName.keySet().retainAll(loadedIdToName.keySet());
+		
+		try {
+			if (compact) {
+				writeSnapshot();
+			}
+			snapshotOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotFile, true)));
+			if (!compact) {
+				snapshotOutput.write(pending);
+			}
+		} catch (IOException e) {
+			log(Level.SEVERE, "Failed to write the snapshot file, it will no longer be updated");
+			e.printStackTrace();
+			closeSnapshot();
+		}
+		
+		if (closed) {
+			closeSnapshot();
+		}
+		loadFuture.complete(null);
+	}
+	
+	private void writeSnapshot() throws IOException {
+		File temp = new File(snapshotFile.getPath() + ".tmp");
+		//noinspection ResultOfMethodCallIgnored
+		temp.getAbsoluteFile().getParentFile().mkdirs();
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			output.writeInt(SNAPSHOT_MAGIC);
+			for (Map.Entry<UUID, String> entry : idToName.entrySet()) {
+				boolean paired = entry.getKey().equals(nameToId.get(toKey(entry.getValue())));
+				writeRecord(output, paired ? RECORD_PUT : RECORD_ID, entry.getKey(), entry.getValue());
+			}
+			for (Map.Entry<String, UUID> entry : nameToId.entrySet()) {
+				String name = idToName.get(entry.getValue());
+				if (name == null || !toKey(name).equals(entry.getKey())) {
+					writeRecord(output, RECORD_NAME, entry.getValue(), entry.getKey());
+				}
+			}
+		}
+		Files.move(temp.toPath(), snapshotFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private synchronized void flushSnapshot() {
+		if (snapshotOutput != null && pendingRecords == null) {
+			try {
+				snapshotOutput.flush();
+			} catch (IOException e) {
+				log(Level.SEVERE, "Failed to write the snapshot file, it will no longer be updated");
+				e.printStackTrace();
+				closeSnapshot();
+			}
+		}
+	}
+	
+	private void closeSnapshot() {
+		if (snapshotOutput != null) {
+			try {
+				snapshotOutput.close();
+			} catch (IOException e) {
+				log(Level.SEVERE, "Failed to close the snapshot file");
+				e.printStackTrace();
+			}
+			snapshotOutput = null;
+		}
+	}
+	
+	private void writeRecord(int type, UUID id, String name) {
+		if (snapshotOutput != null) {
+			try {
+				writeRecord(snapshotOutput, type, id, name);
+			} catch (IOException e) {
+				log(Level.SEVERE, "Failed to write the snapshot file, it will no longer be updated");
+				e.printStackTrace();
+				closeSnapshot();
+			}
+		}
+	}
+	
+	private static void writeRecord(DataOutputStream output, int type, UUID id, String name) throws IOException {
+		output.writeByte(type);
+		output.writeLong(id.getMostSignificantBits());
+		output.writeLong(id.getLeastSignificantBits());
+		output.writeUTF(name);
+	}
+	
+	private static void putPair(Map<String, UUID> nameToId, Map<UUID, String> idToName, String name, UUID id) {
+		String key = toKey(name);
+		String previousName = idToName.put(id, name);
+		if (previousName != null && !toKey(previousName).equals(key)) {
+			nameToId.remove(toKey(previousName), id);
+		}
+		
+		UUID previousId = nameToId.put(key, id);
+		if (previousId != null && !previousId.equals(id)) {
+			String previousIdName = idToName.get(previousId);
+			if (previousIdName != null && toKey(previousIdName).equals(key)) {
+				idToName.remove(previousId, previousIdName);
+			}
+		}
+	}
+	
+	private static int readRecords(DataInputStream input, Map<String, UUID> nameToId,
+			Map<UUID, String> idToName) throws IOException {
+		int count = 0;
+		int type;
+		while ((type = input.read()) != -1) {
+			UUID id = new UUID(input.readLong(), input.readLong());
+			String name = input.readUTF();
+			switch (type) {
+				case RECORD_PUT:
+					putPair(nameToId, idToName, name, id);
+					break;
+				case RECORD_NAME:
+					nameToId.put(toKey(name), id);
+					break;
+				case RECORD_ID:
+					idToName.put(id, name);
+					break;
+				case RECORD_REMOVE_NAME:
+					nameToId.remove(toKey(name));
+					break;
+				case RECORD_REMOVE_ID:
+					idToName.remove(id);
+					break;
+				default:
+					throw new IOException("Invalid record type: " + type);
+			}
+			count++;
+		}
+		return count;
+	}
+	
+	
+	
+	private CompletableFuture<Optional<UUID>> lookupId(String name, boolean blocking) {
+		UUID cached = getId(name);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(Optional.of(cached));
+		} else if (isUnknown(unknownNames, toKey(name))) {
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+		
+		return lookup(idLookups, toKey(name), () -> Optional.ofNullable(getId(name)),
+				() -> send(createRequest(NAME_TO_ID_URL + name), blocking)
+						.thenApply(response -> Optional.ofNullable(handleIdLookup(response, name))),
+				"UUID lookup failed for name: " + name, blocking);
+	}
+	
+	private CompletableFuture<Optional<String>> lookupName(UUID id, boolean blocking) {
+		String cached = getName(id);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(Optional.of(cached));
+		} else if (isUnknown(unknownIds, id)) {
+			return CompletableFuture.completedFuture(Optional.empty());
+		}
+		
+		return lookup(nameLookups, id, () -> Optional.ofNullable(getName(id)),
+				() -> send(createRequest(ID_TO_NAME_URL + toString(id)), blocking)
+						.thenApply(response -> Optional.ofNullable(handleNameLookup(response, id))),
+				"Name lookup failed for UUID: " + id, blocking);
+	}
+	
+	private <K, V> CompletableFuture<Optional<V>> lookup(Map<K, CompletableFuture<Optional<V>>> lookups, K key,
+			Supplier<Optional<V>> cache, Supplier<CompletableFuture<Optional<V>>> request, String errorMessage,
+			boolean blocking) {
+		CompletableFuture<Optional<V>> future = new CompletableFuture<>();
+		//blocking lookups fail fast, therefore their requests must not be shared with asynchronous lookups
+		CompletableFuture<Optional<V>> inFlight = blocking ? lookups.get(key) : lookups.putIfAbsent(key, future);
+		if (inFlight != null) {
+			return inFlight;
+		}
+		
+		//a lookup might have finished between the caller's cache check and the registration of this one
+		Optional<V> cached = cache.get();
+		if (cached.isPresent()) {
+			lookups.remove(key, future);
+			future.complete(cached);
+			return future;
+		}
+		
+		try {
+			request.get().whenComplete((result, thrown) -> {
+				lookups.remove(key, future);
+				future.complete(thrown == null ? result : Optional.empty());
+				if (thrown != null) {
+					logLookupFailure(errorMessage, thrown);
+				}
+			});
+		} catch (RuntimeException e) {
+			lookups.remove(key, future);
+			future.complete(Optional.empty());
+			logLookupFailure(errorMessage, e);
+		}
+		return future;
+	}
+	
+	private void logLookupFailure(String message, Throwable thrown) {
+		Throwable cause = thrown instanceof CompletionException && thrown.getCause() != null ? thrown.getCause() : thrown;
+		if (cause instanceof RateLimitException) {
+			//expected when blocking lookups are done in bursts
+			log(Level.FINE, message + " (" + cause.getMessage() + ")");
+		} else {
+			log(Level.SEVERE, message);
+			thrown.printStackTrace();
+		}
+	}
+	
+	private CompletableFuture<HttpResponse<String>> send(HttpRequest request, boolean blocking) {
+		if (!blocking) {
+			return send(request, 0, 0);
+		} else if (!rateLimiter.tryAcquire()) {
+			return CompletableFuture.failedFuture(new RateLimitException("Rate limit reached, not sending: " + request.uri()));
+		}
+		return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+	}
+	
+	private CompletableFuture<HttpResponse<String>> send(HttpRequest request, int retries, long totalDelay) {
+		return delay(rateLimiter.reserve())
+				.thenCompose(ignored -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()))
+				.thenCompose(response -> {
+					int status = response.statusCode();
+					if ((status != 429 && status < 500) || retries == MAX_RETRIES) {
+						return CompletableFuture.completedFuture(response);
+					}
+					
+					//equal jitter: half of the exponential delay is fixed, the other half is random
+					long backoff = RETRY_BASE_DELAY_NANOS << retries;
+					long jitter = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+					long delay = Math.max(jitter, getRetryAfter(response));
+					if (totalDelay + delay > MAX_RETRY_DELAY_NANOS) {
+						return CompletableFuture.completedFuture(response);
+					}
+					return delay(delay).thenCompose(ignored -> send(request, retries + 1, totalDelay + delay));
+				});
+	}
+	
+	private CompletableFuture<Void> resolveBatches(Queue<List<String>> batches, Map<String, UUID> found) {
+		List<String> batch = batches.poll();
+		if (batch == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		HttpRequest request = HttpRequest.newBuilder(URI.create(BULK_NAME_TO_ID_URL))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(batch)))
+				.build();
+		return send(request, false)
+				.handle((response, thrown) -> {
+					if (thrown == null) {
+						handleBulkIdLookup(response, batch, found);
+					} else {
+						log(Level.SEVERE, "Bulk UUID lookup failed for names: " + batch);
+						thrown.printStackTrace();
+					}
+					return null;
+				})
+				.thenCompose(ignored -> resolveBatches(batches, found));
+	}
+	
+	private void handleBulkIdLookup(HttpResponse<String> response, List<String> names, Map<String, UUID> found) {
+		if (response.statusCode() != 200) {
+			log(Level.WARNING, "Bulk UUID lookup failed (status code: "
+					+ response.statusCode() + ") for names: " + names);
+			return;
+		}
+		
+		try {
+			Profile[] profiles = GSON.fromJson(response.body(), Profile[].class);
+			Set<String> foundKeys = new HashSet<>();
+			if (profiles != null) {
+				for (Profile profile : profiles) {
+					UUID id = parseId(parseProfile(profile).id);
+					putData(profile.name, id);
+					found.put(toKey(profile.name), id);
+					foundKeys.add(toKey(profile.name));
+				}
+			}
+			for (String name : names) {
+				if (!foundKeys.contains(toKey(name))) {
+					markUnknown(unknownNames, toKey(name));
+				}
+			}
+		} catch (JsonParseException | IllegalArgumentException e) {
+			log(Level.SEVERE, "Bulk UUID lookup failed for names: " + names);
+			e.printStackTrace();
+		}
+	}
+	
 	private UUID handleIdLookup(HttpResponse<String> response, String name) {
 		try {
 			if (response.statusCode() == 200) {
-				UUID result = UUID.fromString(response.body().substring(7, 40));
-				putData(name, result);
+				Profile profile = parseProfile(GSON.fromJson(response.body(), Profile.class));
+				UUID result = parseId(profile.id);
+				putData(profile.name, result);
 				return result;
 			} else if (response.statusCode() == 204) {
+				markUnknown(unknownNames, toKey(name));
 				return null;
 			} else {
 				log(Level.WARNING, "UUID lookup failed (status code: "
 						+ response.statusCode() + ") for name: " + name);
 				return null;
 			}
-		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+		} catch (JsonParseException | IllegalArgumentException e) {
 			log(Level.SEVERE, "UUID lookup failed for name: " + name);
 			e.printStackTrace();
 			return null;
@@ -278,17 +810,18 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	private String handleNameLookup(HttpResponse<String> response, UUID id) {
 		try {
 			if (response.statusCode() == 200) {
-				String result = response.body().substring(49, response.body().indexOf('"', 50));
+				String result = parseProfile(GSON.fromJson(response.body(), Profile.class)).name;
 				putData(result, id);
 				return result;
 			} else if (response.statusCode() == 204) {
+				markUnknown(unknownIds, id);
 				return null;
 			} else {
 				log(Level.WARNING, "Name lookup failed (status code: "
 						+ response.statusCode() + ") for UUID: " + id);
 				return null;
 			}
-		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+		} catch (JsonParseException | IllegalArgumentException e) {
 			log(Level.SEVERE, "Name lookup failed for UUID: " + id);
 			e.printStackTrace();
 			return null;
@@ -297,6 +830,81 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	
 	
 	
+	private static <V> Optional<V> await(CompletableFuture<Optional<V>> future) {
+		try {
+			return future.get(BLOCKING_TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Optional.empty();
+		} catch (ExecutionException | TimeoutException e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Gets the delay requested by the Retry-After header in nanoseconds.
+	 * Only the delay-seconds form is supported: HTTP-dates and malformed values are ignored.
+	 */
+	private static long getRetryAfter(HttpResponse<?> response) {
+		Optional<String> header = response.headers().firstValue("Retry-After");
+		if (header.isEmpty()) {
+			return 0;
+		}
+		
+		try {
+			return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(header.get().trim())));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+	
+	private static CompletableFuture<Void> delay(long nanos) {
+		return nanos <= 0 ? CompletableFuture.completedFuture(null) : CompletableFuture.runAsync(() -> {},
+				CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+	}
+	
+	private static <K> boolean isUnknown(Map<K, Long> unknown, K key) {
+		Long expiry = unknown.get(key);
+		if (expiry == null) {
+			return false;
+		} else if (expiry - System.nanoTime() > 0) {
+			return true;
+		}
+		unknown.remove(key, expiry);
+		return false;
+	}
+	
+	private static <K> void markUnknown(Map<K, Long> unknown, K key) {
+		long now = System.nanoTime();
+		unknown.put(key, now + UNKNOWN_TTL_NANOS);
+		if (unknown.size() % UNKNOWN_SWEEP_INTERVAL == 0) {
+			unknown.values().removeIf(expiry -> expiry - now <= 0);
+		}
+	}
+	
+	private static HttpRequest createRequest(String url) {
+		return HttpRequest.newBuilder(URI.create(url)).GET().build();
+	}
+	
+	private static String toKey(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+	
+	private static Profile parseProfile(Profile profile) {
+		if (profile == null || profile.id == null || profile.name == null) {
+			throw new JsonParseException("Incomplete profile");
+		}
+		return profile;
+	}
+	
+	private static UUID parseId(String id) {
+		if (id.length() != 32) {
+			throw new IllegalArgumentException("Invalid UUID: " + id);
+		}
+		return new UUID(Long.parseUnsignedLong(id.substring(0, 16), 16),
+				Long.parseUnsignedLong(id.substring(16), 16));
+	}
+	
 	private String toString(UUID id) {
 		return StringUtils.replace(id.toString(), "-", "", 4);
 	}
@@ -304,4 +912,63 @@ public class NameIdCache implements Listener { //https://wiki.vg/Mojang_API
 	private void log(Level level, String message) {
 		TriJavaPlugin.log(level, "[NameIdCache] " + message);
 	}
+	
+	
+	
+	private static final class Profile {
+		String id;
+		String name;
+	}
+	
+	/**
+	 * Thrown when a blocking lookup isn't sent, because the rate limit has been reached.
+	 */
+	private static final class RateLimitException extends IOException {
+		RateLimitException(String message) {
+			super(message);
+		}
+	}
+	
+	/**
+	 * A token bucket which is implemented by storing the time at which the next token becomes available:
+	 * a full bucket corresponds to this time being {@code capacity - 1} intervals in the past.
+	 * Asynchronous requests are never rejected, instead they are told how long to wait for their token.
+	 */
+	private static final class RateLimiter {
+		private final long capacityNanos;
+		private final long intervalNanos;
+		private long nextTokenNanos = System.nanoTime();
+		
+		RateLimiter(int capacity, long intervalNanos) {
+			capacityNanos = (capacity - 1) * intervalNanos;
+			this.intervalNanos = intervalNanos;
+		}
+		
+		/**
+		 * Takes a token from the bucket, which may mean going into debt.
+		 *
+		 * @return the time in nanoseconds to wait before the request can be sent
+		 */
+		synchronized long reserve() {
+			long now = System.nanoTime();
+			long start = nextTokenNanos - (now - capacityNanos) < 0 ? now - capacityNanos : nextTokenNanos;
+			nextTokenNanos = start + intervalNanos;
+			return Math.max(0, start - now);
+		}
+		
+		/**
+		 * Takes a token from the bucket only if one is available right now.
+		 *
+		 * @return whether a token was taken
+		 */
+		synchronized boolean tryAcquire() {
+			long now = System.nanoTime();
+			long start = nextTokenNanos - (now - capacityNanos) < 0 ? now - capacityNanos : nextTokenNanos;
+			if (start - now > 0) {
+				return false;
+			}
+			nextTokenNanos = start + intervalNanos;
+			return true;
+		}
+	}
 }
@@ -1,7 +1,14 @@
 package hu.trigary.tribukkit;
 
 import hu.trigary.tribukkit.inventory.CustomInventoryListener;
+import hu.trigary.tribukkit.region.RegionEnterEvent;
+import hu.trigary.tribukkit.region.RegionIndex;
+import hu.trigary.tribukkit.region.RegionLeaveEvent;
+import hu.trigary.tribukkit.region.RegionTracker;
+import hu.trigary.tribukkit.region.RegionWorldListener;
 import hu.trigary.tribukkit.timing.TimingManager;
+import hu.trigary.tribukkit.timing.TimingSnapshotWriter;
+import hu.trigary.tribukkit.timing.TimingStorageType;
 import hu.trigary.tribukkit.yml.YmlConfig;
 import hu.trigary.tribukkit.inventory.CustomInventory;
 import org.bukkit.Bukkit;
@@ -23,6 +30,7 @@ public abstract class TriJavaPlugin extends JavaPlugin {
 	@Override
 	public final void onEnable() {
 		instance = this;
+		Bukkit.getPluginManager().registerEvents(new RegionWorldListener(), this);
 		onEnableImpl();
 	}
 	
@@ -34,6 +42,9 @@ public abstract class TriJavaPlugin extends JavaPlugin {
 	@Override
 	public final void onDisable() {
 		onDisableImpl();
+		if (nameIdCache != null) {
+			nameIdCache.close();
+		}
 		instance = null;
 	}
 	
@@ -104,17 +115,75 @@ public abstract class TriJavaPlugin extends JavaPlugin {
 		}
 	}
 	
+	/**
+	 * Starts tracking which regions of the specified index the online players are inside,
+	 * firing {@link RegionEnterEvent} and {@link RegionLeaveEvent} events.
+	 * For more information see {@link RegionTracker}.
+	 *
+	 * @param index the regions to track
+	 * @return the tracker, whose {@link RegionTracker#refresh()} method should be called whenever the index changes
+	 */
+	@NotNull
+	public RegionTracker enableRegionTracker(@NotNull RegionIndex index) {
+		RegionTracker tracker = new RegionTracker(index);
+		Bukkit.getPluginManager().registerEvents(tracker, this);
+		tracker.refresh();
+		return tracker;
+	}
+	
 	/**
 	 * Starts periodic timing reports.
 	 * This is the same as manually enabling {@link TimingManager}
-	 * and periodically calling {@link TimingManager#printAllData()}
+	 * and periodically calling {@link TimingManager#printAllDataAndReset()},
+	 * therefore each report only contains the data of the last interval.
 	 *
 	 * @param verbose whether to use the verbose {@link TimingManager} implementation
 	 * @param intervalSeconds how often the reports should be printed, in seconds
 	 */
 	public void enableScheduledTimingReports(boolean verbose, int intervalSeconds) {
-		TimingManager.enable(verbose);
-		Bukkit.getScheduler().runTaskTimer(this, TimingManager::printAllData, 14, intervalSeconds * 20L);
+		enableScheduledTimingReports(verbose ? TimingStorageType.VERBOSE : TimingStorageType.COMPACT, intervalSeconds);
+	}
+	
+	/**
+	 * Starts periodic timing reports.
+	 * This is the same as manually enabling {@link TimingManager}
+	 * and periodically calling {@link TimingManager#printAllDataAndReset()},
+	 * therefore each report only contains the data of the last interval.
+	 *
+	 * @param storageType the type of storage the {@link TimingManager} should use
+	 * @param intervalSeconds how often the reports should be printed, in seconds
+	 */
+	public void enableScheduledTimingReports(@NotNull TimingStorageType storageType, int intervalSeconds) {
+		TimingManager.enable(storageType);
+		Bukkit.getScheduler().runTaskTimer(this, TimingManager::printAllDataAndReset, 14, intervalSeconds * 20L);
+	}
+	
+	/**
+	 * Starts periodically exporting the timing data to the {@code "timings"} folder in the data folder.
+	 * The {@link TimingManager} must already be enabled.
+	 * The data is not reset by the export, but it can be combined with {@link #enableScheduledTimingReports}:
+	 * each row contains the start of the window its values were measured in (the last reset).
+	 * For more options see {@link TimingSnapshotWriter}.
+	 *
+	 * @param format the format of the files to write
+	 * @param intervalSeconds how often the snapshots should be written, in seconds
+	 */
+	public void enableScheduledTimingExport(@NotNull TimingSnapshotWriter.Format format, int intervalSeconds) {
+		new TimingSnapshotWriter(this, format).schedule(this, intervalSeconds);
+	}
+	
+	/**
+	 * Starts collecting per-tick timing data.
+	 * This is the same as manually calling {@link TimingManager#enableTickWindow(int, double)}
+	 * and calling {@link TimingManager#handleTick()} every tick.
+	 * The {@link TimingManager} must already be enabled.
+	 *
+	 * @param windowTicks the count of most recent ticks to keep the data of, eg. 1200
+	 * @param thresholdMillis the sum of measured times in a tick above which the tick gets flagged
+	 */
+	public void enableTickTimingWindow(int windowTicks, double thresholdMillis) {
+		TimingManager.enableTickWindow(windowTicks, thresholdMillis);
+		Bukkit.getScheduler().runTaskTimer(this, TimingManager::handleTick, 0, 1);
 	}
 	
 	
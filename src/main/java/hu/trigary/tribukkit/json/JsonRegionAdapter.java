@@ -0,0 +1,209 @@
+package hu.trigary.tribukkit.json;
+
+import com.google.gson.*;
+import hu.trigary.tribukkit.region.*;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Converts the built-in {@link Region} implementations to and from a single line of space separated tokens.
+ * The world name of any world is written as {@code *}. The supported formats are:
+ * <ul>
+ *     <li>{@code world <world>}</li>
+ *     <li>{@code rectangle <world> <minX> <maxX> <minZ> <maxZ>}</li>
+ *     <li>{@code box <world> <minX> <maxX> <minY> <maxY> <minZ> <maxZ>}</li>
+ *     <li>{@code circle <world> <centerX> <centerZ> <radius>}</li>
+ *     <li>{@code cylinder <world> <centerX> <centerZ> <radius> <minY> <maxY>}</li>
+ *     <li>{@code sphere <world> <centerX> <centerY> <centerZ> <radius>}</li>
+ *     <li>{@code polygon <world> <minY> <maxY> <vertexCount> <x1> <z1> <x2> <z2> ...}</li>
+ *     <li>{@code union <childCount> <child1> <child2> ...}</li>
+ *     <li>{@code intersection <childCount> <child1> <child2> ...}</li>
+ *     <li>{@code difference <childCount> <base> <subtracted1> ...}</li>
+ * </ul>
+ * Eg. {@code difference 2 box world 0 10 0 10 0 10 cylinder * 5 5 2.5 0 10}.
+ */
+public class JsonRegionAdapter implements JsonSerializer<Region>, JsonDeserializer<Region> {
+	private static final String ANY_WORLD = "*";
+	
+	@Override
+	public JsonElement serialize(Region region, Type type, JsonSerializationContext context) {
+		return new JsonPrimitive(serialize(region));
+	}
+	
+	@NotNull
+	public static String serialize(@NotNull Region region) {
+		StringBuilder builder = new StringBuilder();
+		serialize(builder, region);
+		return builder.toString();
+	}
+	
+	
+	
+	@Override
+	public Region deserialize(JsonElement json, Type type, JsonDeserializationContext context) {
+		return deserialize(json.getAsString());
+	}
+	
+	@NotNull
+	public static Region deserialize(@NotNull String value) {
+		String[] split = StringUtils.split(value, ' ');
+		int[] position = new int[1];
+		Region region = deserialize(split, position);
+		if (position[0] != split.length) {
+			throw new IllegalArgumentException("Unexpected tokens after the region: " + value);
+		}
+		return region;
+	}
+	
+	
+	
+	private static void serialize(StringBuilder builder, Region region) {
+		Class<?> type = region.getClass();
+		if (type == WorldRegion.class) {
+			appendWorld(builder.append("world"), region);
+		} else if (type == RectangleRegion.class) {
+			BlockBox box = region.getBoundingBox();
+			appendWorld(builder.append("rectangle"), region);
+			append(builder, box.getMinX(), box.getMaxX(), box.getMinZ(), box.getMaxZ());
+		} else if (type == BoxRegion.class) {
+			BlockBox box = region.getBoundingBox();
+			appendWorld(builder.append("box"), region);
+			append(builder, box.getMinX(), box.getMaxX(), box.getMinY(), box.getMaxY(), box.getMinZ(), box.getMaxZ());
+		} else if (type == CircleRegion.class) {
+			CircleRegion circle = (CircleRegion) region;
+			appendWorld(builder.append("circle"), region);
+			append(builder, circle.getCenterX(), circle.getCenterZ());
+			builder.append(' ').append(circle.getRadius());
+		} else if (type == CylinderRegion.class) {
+			CylinderRegion cylinder = (CylinderRegion) region;
+			BlockBox box = region.getBoundingBox();
+			appendWorld(builder.append("cylinder"), region);
+			append(builder, cylinder.getCenterX(), cylinder.getCenterZ());
+			builder.append(' ').append(cylinder.getRadius());
+			append(builder, box.getMinY(), box.getMaxY());
+		} else if (type == SphereRegion.class) {
+			SphereRegion sphere = (SphereRegion) region;
+			appendWorld(builder.append("sphere"), region);
+			append(builder, sphere.getCenterX(), sphere.getCenterY(), sphere.getCenterZ());
+			builder.append(' ').append(sphere.getRadius());
+		} else if (type == PolygonRegion.class) {
+			PolygonRegion polygon = (PolygonRegion) region;
+			BlockBox box = region.getBoundingBox();
+			int[] xs = polygon.getVertexXs();
+			int[] zs = polygon.getVertexZs();
+			appendWorld(builder.append("polygon"), region);
+			append(builder, box.getMinY(), box.getMaxY(), xs.length);
+			for (int i = 0; i < xs.length; i++) {
+				append(builder, xs[i], zs[i]);
+			}
+		} else if (type == UnionRegion.class) {
+			appendChildren(builder.append("union"), (CompositeRegion) region);
+		} else if (type == IntersectionRegion.class) {
+			appendChildren(builder.append("intersection"), (CompositeRegion) region);
+		} else if (type == DifferenceRegion.class) {
+			appendChildren(builder.append("difference"), (CompositeRegion) region);
+		} else {
+			throw new IllegalArgumentException("Unsupported region type: " + type.getName());
+		}
+	}
+	
+	private static void appendWorld(StringBuilder builder, Region region) {
+		String world = region.getWorldName();
+		builder.append(' ').append(world == null ? ANY_WORLD : world);
+	}
+	
+	private static void append(StringBuilder builder, int... values) {
+		for (int value : values) {
+			builder.append(' ').append(value);
+		}
+	}
+	
+	private static void appendChildren(StringBuilder builder, CompositeRegion region) {
+		List<Region> children = region.getChildren();
+		builder.append(' ').append(children.size());
+		for (Region child : children) {
+			serialize(builder.append(' '), child);
+		}
+	}
+	
+	
+	
+	private static Region deserialize(String[] split, int[] position) {
+		String type = next(split, position);
+		switch (type) {
+			case "world":
+				return new WorldRegion(nextWorld(split, position));
+			case "rectangle":
+				return new RectangleRegion(nextWorld(split, position), nextInt(split, position),
+						nextInt(split, position), nextInt(split, position), nextInt(split, position));
+			case "box":
+				return new BoxRegion(nextWorld(split, position), nextInt(split, position), nextInt(split, position),
+						nextInt(split, position), nextInt(split, position),
+						nextInt(split, position), nextInt(split, position));
+			case "circle":
+				return new CircleRegion(nextWorld(split, position), nextInt(split, position),
+						nextInt(split, position), Float.parseFloat(next(split, position)));
+			case "cylinder":
+				return new CylinderRegion(nextWorld(split, position), nextInt(split, position),
+						nextInt(split, position), Float.parseFloat(next(split, position)),
+						nextInt(split, position), nextInt(split, position));
+			case "sphere":
+				return new SphereRegion(nextWorld(split, position), nextInt(split, position), nextInt(split, position),
+						nextInt(split, position), Float.parseFloat(next(split, position)));
+			case "polygon": {
+				String world = nextWorld(split, position);
+				int minY = nextInt(split, position);
+				int maxY = nextInt(split, position);
+				int[] xs = new int[nextInt(split, position)];
+				int[] zs = new int[xs.length];
+				for (int i = 0; i < xs.length; i++) {
+					xs[i] = nextInt(split, position);
+					zs[i] = nextInt(split, position);
+				}
+				return new PolygonRegion(world, xs, zs, minY, maxY);
+			}
+			case "union":
+				return new UnionRegion(nextChildren(split, position));
+			case "intersection":
+				return new IntersectionRegion(nextChildren(split, position));
+			case "difference": {
+				Region[] children = nextChildren(split, position);
+				Region[] subtracted = new Region[children.length - 1];
+				System.arraycopy(children, 1, subtracted, 0, subtracted.length);
+				return new DifferenceRegion(children[0], subtracted);
+			}
+			default:
+				throw new IllegalArgumentException("Unknown region type: " + type);
+		}
+	}
+	
+	private static String next(String[] split, int[] position) {
+		if (position[0] == split.length) {
+			throw new IllegalArgumentException("Unexpected end of region: " + String.join(" ", split));
+		}
+		return split[position[0]++];
+	}
+	
+	private static String nextWorld(String[] split, int[] position) {
+		String world = next(split, position);
+		return world.equals(ANY_WORLD) ? null : world;
+	}
+	
+	private static int nextInt(String[] split, int[] position) {
+		return Integer.parseInt(next(split, position));
+	}
+	
+	private static Region[] nextChildren(String[] split, int[] position) {
+		Region[] children = new Region[nextInt(split, position)];
+		if (children.length == 0) {
+			throw new IllegalArgumentException("A composite region must have at least one child");
+		}
+		for (int i = 0; i < children.length; i++) {
+			children[i] = deserialize(split, position);
+		}
+		return children;
+	}
+}
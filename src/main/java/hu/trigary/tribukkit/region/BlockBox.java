@@ -0,0 +1,183 @@
+package hu.trigary.tribukkit.region;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An axis-aligned box of block coordinates, used as the bounding box of {@link Region} instances.
+ * All of the coordinates are inclusive.
+ * An axis which is not limited has {@link Integer#MIN_VALUE} and {@link Integer#MAX_VALUE} as its limits.
+ * This class is immutable.
+ */
+public final class BlockBox {
+	/**
+	 * A box which contains all block coordinates.
+	 */
+	public static final BlockBox INFINITE = new BlockBox(Integer.MIN_VALUE, Integer.MAX_VALUE,
+			Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	private final int minX;
+	private final int maxX;
+	private final int minY;
+	private final int maxY;
+	private final int minZ;
+	private final int maxZ;
+	
+	/**
+	 * Creates a new box with the specified limits.
+	 *
+	 * @param xLimitAlpha one of the ends of the X coordinate range
+	 * @param xLimitBeta the other end of the X coordinate range
+	 * @param yLimitAlpha one of the ends of the Y coordinate range
+	 * @param yLimitBeta the other end of the Y coordinate range
+	 * @param zLimitAlpha one of the ends of the Z coordinate range
+	 * @param zLimitBeta the other end of the Z coordinate range
+	 */
+	public BlockBox(int xLimitAlpha, int xLimitBeta, int yLimitAlpha,
+			int yLimitBeta, int zLimitAlpha, int zLimitBeta) {
+		minX = Math.min(xLimitAlpha, xLimitBeta);
+		maxX = Math.max(xLimitAlpha, xLimitBeta);
+		minY = Math.min(yLimitAlpha, yLimitBeta);
+		maxY = Math.max(yLimitAlpha, yLimitBeta);
+		minZ = Math.min(zLimitAlpha, zLimitBeta);
+		maxZ = Math.max(zLimitAlpha, zLimitBeta);
+	}
+	
+	
+	
+	@Contract(pure = true)
+	public int getMinX() {
+		return minX;
+	}
+	
+	@Contract(pure = true)
+	public int getMaxX() {
+		return maxX;
+	}
+	
+	@Contract(pure = true)
+	public int getMinY() {
+		return minY;
+	}
+	
+	@Contract(pure = true)
+	public int getMaxY() {
+		return maxY;
+	}
+	
+	@Contract(pure = true)
+	public int getMinZ() {
+		return minZ;
+	}
+	
+	@Contract(pure = true)
+	public int getMaxZ() {
+		return maxZ;
+	}
+	
+	
+	
+	/**
+	 * Gets whether the specified block coordinates are inside this box.
+	 *
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return whether the coordinates are inside
+	 */
+	@Contract(pure = true)
+	public boolean contains(int x, int y, int z) {
+		return minX <= x && maxX >= x && minY <= y && maxY >= y && minZ <= z && maxZ >= z;
+	}
+	
+	/**
+	 * Gets whether this box and the specified box have at least one common block.
+	 *
+	 * @param other the other box
+	 * @return whether the boxes overlap
+	 */
+	@Contract(pure = true)
+	public boolean intersects(@NotNull BlockBox other) {
+		return minX <= other.maxX && maxX >= other.minX && minY <= other.maxY
+				&& maxY >= other.minY && minZ <= other.maxZ && maxZ >= other.minZ;
+	}
+	
+	/**
+	 * Gets the smallest box which contains both this box and the specified box.
+	 *
+	 * @param other the other box
+	 * @return the box containing both boxes
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public BlockBox union(@NotNull BlockBox other) {
+		return new BlockBox(Math.min(minX, other.minX), Math.max(maxX, other.maxX), Math.min(minY, other.minY),
+				Math.max(maxY, other.maxY), Math.min(minZ, other.minZ), Math.max(maxZ, other.maxZ));
+	}
+	
+	/**
+	 * Gets the box which contains the blocks which are inside both this box and the specified box.
+	 *
+	 * @param other the other box
+	 * @return the common part of the boxes or null, if they don't overlap
+	 */
+	@Nullable
+	@Contract(pure = true)
+	public BlockBox intersection(@NotNull BlockBox other) {
+		if (!intersects(other)) {
+			return null;
+		}
+		return new BlockBox(Math.max(minX, other.minX), Math.min(maxX, other.maxX), Math.max(minY, other.minY),
+				Math.min(maxY, other.maxY), Math.max(minZ, other.minZ), Math.min(maxZ, other.maxZ));
+	}
+	
+	/**
+	 * Gets whether all axes of this box are limited,
+	 * meaning that none of its limits are {@link Integer#MIN_VALUE} or {@link Integer#MAX_VALUE}.
+	 *
+	 * @return whether the box has a finite size on all axes
+	 */
+	@Contract(pure = true)
+	public boolean isBounded() {
+		return minX != Integer.MIN_VALUE && maxX != Integer.MAX_VALUE && minY != Integer.MIN_VALUE
+				&& maxY != Integer.MAX_VALUE && minZ != Integer.MIN_VALUE && maxZ != Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Gets the count of chunk columns (16x16 areas) this box overlaps.
+	 *
+	 * @return the count of overlapped chunk columns
+	 */
+	@Contract(pure = true)
+	public long getChunkCount() {
+		return ((long) (maxX >> 4) - (minX >> 4) + 1) * ((long) (maxZ >> 4) - (minZ >> 4) + 1);
+	}
+	
+	
+	
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof BlockBox)) {
+			return false;
+		}
+		
+		BlockBox other = (BlockBox) object;
+		return minX == other.minX && maxX == other.maxX && minY == other.minY
+				&& maxY == other.maxY && minZ == other.minZ && maxZ == other.maxZ;
+	}
+	
+	@Override
+	public int hashCode() {
+		int result = minX;
+		result = 31 * result + maxX;
+		result = 31 * result + minY;
+		result = 31 * result + maxY;
+		result = 31 * result + minZ;
+		return 31 * result + maxZ;
+	}
+	
+	@Override
+	public String toString() {
+		return "[" + minX + ";" + minY + ";" + minZ + "]-[" + maxX + ";" + maxY + ";" + maxZ + "]";
+	}
+}
@@ -0,0 +1,96 @@
+package hu.trigary.tribukkit.region;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Walks the blocks inside a {@link Region}, one chunk section (16x16x16 area) at a time,
+ * using {@link Region#forEachBlockInside(int, int, int, int, int, int, IntTriConsumer)}.
+ * The walk can be paused between chunk sections, this way it can be split across multiple ticks.
+ * The chunk sections of a chunk column are walked before moving on to the next chunk column.
+ */
+final class BlockWalker {
+	private final Region region;
+	private final IntTriConsumer consumer;
+	private final BlockBox box;
+	private final int minChunkX;
+	private final int maxChunkX;
+	private final int minChunkZ;
+	private final int maxChunkZ;
+	private final int minSection;
+	private final int maxSection;
+	private int chunkX;
+	private int chunkZ;
+	private int section;
+	private boolean done;
+	
+	BlockWalker(Region region, IntTriConsumer consumer) {
+		box = region.getBoundingBox();
+		Validate.isTrue(box.isBounded(), "The bounding box of the region must be bounded: ", box);
+		this.region = region;
+		this.consumer = consumer;
+		minChunkX = box.getMinX() >> 4;
+		maxChunkX = box.getMaxX() >> 4;
+		minChunkZ = box.getMinZ() >> 4;
+		maxChunkZ = box.getMaxZ() >> 4;
+		minSection = box.getMinY() >> 4;
+		maxSection = box.getMaxY() >> 4;
+		chunkX = minChunkX;
+		chunkZ = minChunkZ;
+		section = minSection;
+	}
+	
+	
+	
+	/**
+	 * Gets whether all blocks have been walked.
+	 *
+	 * @return whether the walk is finished
+	 */
+	boolean isDone() {
+		return done;
+	}
+	
+	/**
+	 * Continues walking the blocks until the specified count of block positions have been checked,
+	 * rounded up to the end of the current chunk section, or until the walk is finished.
+	 * All positions of the walked chunk sections (within the bounding box) count towards the budget,
+	 * not only the ones inside the region, so sparse regions can't make a single call arbitrarily long.
+	 *
+	 * @param budget the count of checked block positions after which the walk should be paused
+	 * @return the count of blocks passed to the consumer
+	 */
+	long walk(long budget) {
+		long count = 0;
+		long checked = 0;
+		while (!done && checked < budget) {
+			int minX = Math.max(box.getMinX(), chunkX << 4);
+			int minY = Math.max(box.getMinY(), section << 4);
+			int minZ = Math.max(box.getMinZ(), chunkZ << 4);
+			int maxX = Math.min(box.getMaxX(), (chunkX << 4) + 15);
+			int maxY = Math.min(box.getMaxY(), (section << 4) + 15);
+			int maxZ = Math.min(box.getMaxZ(), (chunkZ << 4) + 15);
+			count += region.forEachBlockInside(minX, minY, minZ, maxX, maxY, maxZ, consumer);
+			checked += (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+			advance();
+		}
+		return count;
+	}
+	
+	
+	
+	private void advance() {
+		if (section++ < maxSection) {
+			return;
+		}
+		section = minSection;
+		
+		if (chunkZ++ < maxChunkZ) {
+			return;
+		}
+		chunkZ = minChunkZ;
+		
+		if (chunkX++ == maxChunkX) {
+			done = true;
+		}
+	}
+}
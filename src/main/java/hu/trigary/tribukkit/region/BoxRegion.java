@@ -58,12 +58,50 @@ public class BoxRegion extends RectangleRegion {
 	
 	@Override
 	@Contract(pure = true)
-	public boolean isInside(@NotNull Location location) {
-		if (!super.isInside(location)) {
-			return false;
+	public int getCost() {
+		return super.getCost() + 1;
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		BlockBox box = super.getBoundingBox();
+		return new BlockBox(box.getMinX(), box.getMaxX(), minY, maxY, box.getMinZ(), box.getMaxZ());
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public long getVolume() {
+		BlockBox box = getBoundingBox();
+		return ((long) box.getMaxX() - box.getMinX() + 1) * ((long) box.getMaxY() - box.getMinY() + 1)
+				* ((long) box.getMaxZ() - box.getMinZ() + 1);
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInsideBounds(int x, int y, int z) {
+		return minY <= y && maxY >= y && super.isInsideBounds(x, y, z);
+	}
+	
+	@Override
+	protected void isInsideBoundsEach(@NotNull int[] xs, @NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		//the bounding box is the exact shape of this region, read into locals for the loop
+		BlockBox box = getBoundingBox();
+		int minX = box.getMinX();
+		int maxX = box.getMaxX();
+		int minZ = box.getMinZ();
+		int maxZ = box.getMaxZ();
+		for (int start = 0; start < xs.length; start += 64) {
+			int end = Math.min(xs.length, start + 64);
+			long word = 0;
+			for (int i = start; i < end; i++) {
+				int x = xs[i];
+				int y = ys[i];
+				int z = zs[i];
+				word |= (minX <= x & maxX >= x & minY <= y & maxY >= y & minZ <= z & maxZ >= z ? 1L : 0L) << i;
+			}
+			words[start >> 6] = word;
 		}
-		
-		int y = location.getBlockY();
-		return minY <= y && maxY >= y;
 	}
 }
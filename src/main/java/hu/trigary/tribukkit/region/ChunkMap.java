@@ -0,0 +1,112 @@
+package hu.trigary.tribukkit.region;
+
+import java.util.Arrays;
+
+/**
+ * A map from chunk coordinates to values, using open addressing with linear probing,
+ * so that lookups don't have to box the keys or allocate.
+ * Null values are not allowed: they mark the empty slots.
+ * This class is not thread safe.
+ *
+ * @param <V> the type of the values
+ */
+final class ChunkMap<V> {
+	private long[] keys = new long[16];
+	private Object[] values = new Object[16];
+	private int size;
+	
+	
+	
+	static long getKey(int chunkX, int chunkZ) {
+		return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	V get(int chunkX, int chunkZ) {
+		long key = getKey(chunkX, chunkZ);
+		int mask = keys.length - 1;
+		for (int i = getSlot(key, mask); ; i = (i + 1) & mask) {
+			Object value = values[i];
+			if (value == null || keys[i] == key) {
+				//noinspection unchecked
+				return (V) value;
+			}
+		}
+	}
+	
+	void put(int chunkX, int chunkZ, V value) {
+		if ((size + 1) * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+		
+		long key = getKey(chunkX, chunkZ);
+		int mask = keys.length - 1;
+		int i = getSlot(key, mask);
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		if (values[i] == null) {
+			size++;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+	
+	void remove(int chunkX, int chunkZ) {
+		long key = getKey(chunkX, chunkZ);
+		int mask = keys.length - 1;
+		int i = getSlot(key, mask);
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		if (values[i] == null) {
+			return;
+		}
+		
+		//backward shift deletion: move the following entries of the probe sequence into the gap
+		size--;
+		int gap = i;
+		for (i = (i + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+			int slot = getSlot(keys[i], mask);
+			if (((i - slot) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		values[gap] = null;
+	}
+	
+	void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+	
+	
+	
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[capacity];
+		values = new Object[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] != null) {
+				int i = getSlot(oldKeys[j], mask);
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+	
+	private static int getSlot(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ hash >>> 32) & mask;
+	}
+}
@@ -1,5 +1,6 @@
 package hu.trigary.tribukkit.region;
 
+import org.apache.commons.lang.Validate;
 import org.bukkit.Location;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.Contract;
@@ -8,11 +9,19 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * A region which compares world names, and has a valid (circular) range for X, Z coordinates.
+ * <br><br>
+ * The distances are calculated with overflow-safe long arithmetic, against the floor of the squared radius.
+ * Positions outside the square around the circle are rejected and positions inside the square
+ * inscribed in the circle are accepted without calculating the distance.
+ * The radius is capped at {@link Integer#MAX_VALUE}.
  */
 public class CircleRegion extends WorldRegion {
 	private final int centerX;
 	private final int centerZ;
-	private final float radiusSquared;
+	private final float radius;
+	private final long radiusSquared;
+	private final long outerRadius;
+	private final long innerRadius;
 	
 	/**
 	 * Creates a new region instance with the specified options.
@@ -26,7 +35,11 @@ public class CircleRegion extends WorldRegion {
 		super(world);
 		this.centerX = centerX;
 		this.centerZ = centerZ;
-		radiusSquared = radius * radius;
+		Validate.isTrue(radius >= 0, "The radius must not be negative: ", radius);
+		this.radius = radius;
+		radiusSquared = floorSquare(radius, Integer.MAX_VALUE);
+		outerRadius = floorSqrt(radiusSquared);
+		innerRadius = floorSqrt(radiusSquared / 2);
 	}
 	
 	/**
@@ -53,15 +66,130 @@ public class CircleRegion extends WorldRegion {
 	
 	
 	
+	/**
+	 * Gets the X coordinate of the center of the circle.
+	 *
+	 * @return the X coordinate of the center
+	 */
+	@Contract(pure = true)
+	public int getCenterX() {
+		return centerX;
+	}
+	
+	/**
+	 * Gets the Z coordinate of the center of the circle.
+	 *
+	 * @return the Z coordinate of the center
+	 */
+	@Contract(pure = true)
+	public int getCenterZ() {
+		return centerZ;
+	}
+	
+	/**
+	 * Gets the radius of the circle.
+	 *
+	 * @return the radius
+	 */
+	@Contract(pure = true)
+	public float getRadius() {
+		return radius;
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public int getCost() {
+		return super.getCost() + 2;
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return new BlockBox(clamp(centerX - outerRadius), clamp(centerX + outerRadius), Integer.MIN_VALUE,
+				Integer.MAX_VALUE, clamp(centerZ - outerRadius), clamp(centerZ + outerRadius));
+	}
+	
 	@Override
 	@Contract(pure = true)
-	public boolean isInside(@NotNull Location location) {
-		if (!super.isInside(location)) {
+	protected boolean isInsideBounds(int x, int y, int z) {
+		long dx = Math.abs((long) x - centerX);
+		long dz = Math.abs((long) z - centerZ);
+		if (dx > outerRadius || dz > outerRadius) {
 			return false;
 		}
-		
-		int x = location.getBlockX() - centerX;
-		int z = location.getBlockZ() - centerZ;
-		return x * x + z * z <= radiusSquared;
+		return (dx <= innerRadius && dz <= innerRadius || dx * dx + dz * dz <= radiusSquared)
+				&& super.isInsideBounds(x, y, z);
+	}
+	
+	@Override
+	protected void isInsideBoundsEach(@NotNull int[] xs, @NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		isInsideBoundsEach(xs, ys, zs, words, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Sets the bits of the block coordinates which are inside the circle and inside the specified Y range.
+	 * Used by the subclasses limiting the Y coordinates, this way they don't need a second loop.
+	 *
+	 * @param xs the X coordinates to check
+	 * @param ys the Y coordinates to check
+	 * @param zs the Z coordinates to check, all arrays have the same length
+	 * @param words the bits to set, the i-th position belongs to {@code words[i >> 6] & 1L << i}
+	 * @param minY the min Y coordinate of the range
+	 * @param maxY the max Y coordinate of the range
+	 */
+	final void isInsideBoundsEach(int[] xs, int[] ys, int[] zs, long[] words, int minY, int maxY) {
+		for (int start = 0; start < xs.length; start += 64) {
+			int end = Math.min(xs.length, start + 64);
+			long word = 0;
+			for (int i = start; i < end; i++) {
+				//the product may overflow, but only when the position is outside the outer square
+				long dx = Math.abs(xs[i] - (long) centerX);
+				long dz = Math.abs(zs[i] - (long) centerZ);
+				int y = ys[i];
+				word |= (dx <= outerRadius & dz <= outerRadius & minY <= y & maxY >= y
+						& dx * dx + dz * dz <= radiusSquared ? 1L : 0L) << i;
+			}
+			words[start >> 6] = word;
+		}
+	}
+	
+	
+	
+	/**
+	 * Gets the floor of the square of the specified radius, the radius being capped at the specified value.
+	 * Since the squared distances of block positions are integers,
+	 * a position is inside the radius if its squared distance is at most the returned value.
+	 *
+	 * @param radius the non-negative radius
+	 * @param maxRadius the cap of the radius
+	 * @return the floor of the squared radius
+	 */
+	static long floorSquare(float radius, long maxRadius) {
+		//a float has a 24 bit mantissa: its square is exact as a double
+		double capped = Math.min(radius, maxRadius);
+		return (long) Math.floor(capped * capped);
+	}
+	
+	/**
+	 * Gets the floor of the square root of the specified value:
+	 * the highest distance whose square is at most the specified value.
+	 *
+	 * @param value the non-negative value
+	 * @return the floor of the square root
+	 */
+	static long floorSqrt(long value) {
+		long result = (long) Math.sqrt(value);
+		while (result * result > value) {
+			result--;
+		}
+		while ((result + 1) * (result + 1) <= value) {
+			result++;
+		}
+		return result;
+	}
+	
+	static int clamp(long value) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
 	}
 }
@@ -0,0 +1,159 @@
+package hu.trigary.tribukkit.region;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The base class of regions which are built from other regions.
+ * The bounding box of the composite region is precomputed: positions outside of it are rejected immediately,
+ * and the bounding boxes of the children are also checked before their isInside methods are called.
+ * This way complex shapes are almost as cheap as a single box for positions which are far away.
+ * <br><br>
+ * The children are ordered by their estimated cost (see {@link Region#getCost()}),
+ * so that the cheap checks can short-circuit the expensive ones.
+ * Positions are always checked as block positions, all isInside overloads share the same logic.
+ */
+public abstract class CompositeRegion extends Region {
+	private final Region[] children;
+	private final BlockBox[] childBoxes;
+	private final int cost;
+	
+	/**
+	 * Creates a new composite region from the specified children.
+	 *
+	 * @param children the regions this region consists of, at least one
+	 * @param sortChildren whether the children should be ordered by their costs
+	 */
+	protected CompositeRegion(@NotNull Region[] children, boolean sortChildren) {
+		Validate.isTrue(children.length != 0, "At least one region must be specified");
+		for (Region child : children) {
+			Validate.notNull(child, "Regions must not be null");
+		}
+		this.children = children.clone();
+		if (sortChildren) {
+			Arrays.sort(this.children, Comparator.comparingInt(Region::getCost));
+		}
+		
+		childBoxes = new BlockBox[children.length];
+		int costSum = 1;
+		for (int i = 0; i < children.length; i++) {
+			childBoxes[i] = this.children[i].getBoundingBox();
+			costSum += this.children[i].getCost();
+		}
+		cost = costSum;
+	}
+	
+	
+	
+	/**
+	 * Gets the regions this region consists of, in the order they are checked.
+	 *
+	 * @return the child regions
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public List<Region> getChildren() {
+		return Collections.unmodifiableList(Arrays.asList(children));
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public int getCost() {
+		return cost;
+	}
+	
+	
+	
+	@Override
+	@Contract(pure = true)
+	public final boolean isInside(@NotNull Location location) {
+		return isInside(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public final boolean isInside(@Nullable World world, int x, int y, int z) {
+		return getBoundingBox().contains(x, y, z) && isInside(world, null, x, y, z);
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public final boolean isInside(@Nullable UUID worldId, double x, double y, double z) {
+		int blockX = Location.locToBlock(x);
+		int blockY = Location.locToBlock(y);
+		int blockZ = Location.locToBlock(z);
+		return getBoundingBox().contains(blockX, blockY, blockZ) && isInside(null, worldId, blockX, blockY, blockZ);
+	}
+	
+	
+	
+	/**
+	 * Gets whether the specified block position is inside this region.
+	 * The position is already known to be inside the bounding box of this region.
+	 * At most one of the world parameters is non-null, if both of them are null, then any world is matched.
+	 *
+	 * @param world the world of the position
+	 * @param worldId the UUID of the world of the position
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return whether the position is inside
+	 */
+	@Contract(pure = true)
+	protected abstract boolean isInside(@Nullable World world, @Nullable UUID worldId, int x, int y, int z);
+	
+	/**
+	 * Gets the count of child regions.
+	 *
+	 * @return the count of children
+	 */
+	@Contract(pure = true)
+	protected final int getChildCount() {
+		return children.length;
+	}
+	
+	/**
+	 * Gets the bounding box of the child region at the specified index.
+	 *
+	 * @param index the index of the child region
+	 * @return the bounding box of the child
+	 */
+	@NotNull
+	@Contract(pure = true)
+	protected final BlockBox getChildBoundingBox(int index) {
+		return childBoxes[index];
+	}
+	
+	/**
+	 * Gets whether the specified block position is inside the child region at the specified index.
+	 * The bounding box of the child is checked first.
+	 *
+	 * @param index the index of the child region
+	 * @param world the world of the position
+	 * @param worldId the UUID of the world of the position
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return whether the position is inside the child
+	 */
+	@Contract(pure = true)
+	protected final boolean isInsideChild(int index, @Nullable World world,
+			@Nullable UUID worldId, int x, int y, int z) {
+		if (!childBoxes[index].contains(x, y, z)) {
+			return false;
+		}
+		
+		Region child = children[index];
+		return worldId == null ? child.isInside(world, x, y, z) : child.isInside(worldId, x, y, z);
+	}
+}
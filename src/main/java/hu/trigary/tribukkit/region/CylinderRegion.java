@@ -25,7 +25,7 @@ public class CylinderRegion extends CircleRegion {
 	 * @param yLimitBeta the other end of the valid Y coordinate range
 	 */
 	public CylinderRegion(@Nullable String world, int centerX, int centerZ,
-			int radius, int yLimitAlpha, int yLimitBeta) {
+			float radius, int yLimitAlpha, int yLimitBeta) {
 		super(world, centerX, centerZ, radius);
 		minY = Math.min(yLimitAlpha, yLimitBeta);
 		maxY = Math.max(yLimitAlpha, yLimitBeta);
@@ -41,7 +41,7 @@ public class CylinderRegion extends CircleRegion {
 	 * @param yLimitBeta the other end of the valid Y coordinate range
 	 */
 	public CylinderRegion(@Nullable String world, @NotNull Vector center,
-			int radius, int yLimitAlpha, int yLimitBeta) {
+			float radius, int yLimitAlpha, int yLimitBeta) {
 		this(world, center.getBlockX(), center.getBlockZ(), radius, yLimitAlpha, yLimitBeta);
 	}
 	
@@ -55,7 +55,7 @@ public class CylinderRegion extends CircleRegion {
 	 * @param yLimitBeta the other end of the valid Y coordinate range
 	 */
 	public CylinderRegion(@Nullable String world, @NotNull Location center,
-			int radius, int yLimitAlpha, int yLimitBeta) {
+			float radius, int yLimitAlpha, int yLimitBeta) {
 		this(world, center.toVector(), radius, yLimitAlpha, yLimitBeta);
 	}
 	
@@ -63,12 +63,26 @@ public class CylinderRegion extends CircleRegion {
 	
 	@Override
 	@Contract(pure = true)
-	public boolean isInside(@NotNull Location location) {
-		if (!super.isInside(location)) {
-			return false;
-		}
-		
-		int y = location.getBlockY();
-		return minY <= y && maxY >= y;
+	public int getCost() {
+		return super.getCost() + 1;
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		BlockBox box = super.getBoundingBox();
+		return new BlockBox(box.getMinX(), box.getMaxX(), minY, maxY, box.getMinZ(), box.getMaxZ());
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInsideBounds(int x, int y, int z) {
+		return minY <= y && maxY >= y && super.isInsideBounds(x, y, z);
+	}
+	
+	@Override
+	protected void isInsideBoundsEach(@NotNull int[] xs, @NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		isInsideBoundsEach(xs, ys, zs, words, minY, maxY);
 	}
 }
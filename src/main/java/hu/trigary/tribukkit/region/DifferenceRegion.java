@@ -0,0 +1,106 @@
+package hu.trigary.tribukkit.region;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * A region which contains the positions which are inside its base region,
+ * but aren't inside any of its subtracted regions, eg. a box minus a cylinder.
+ * For more information, see {@link CompositeRegion} JavaDocs.
+ * <br><br>
+ * The base region is always checked first, the subtracted regions are ordered by their costs.
+ * Subtracted regions whose bounding boxes don't overlap the base region's bounding box are never checked.
+ */
+public class DifferenceRegion extends CompositeRegion {
+	private final Region base;
+	private final BlockBox boundingBox;
+	
+	/**
+	 * Creates a new region which is the difference of the specified regions.
+	 *
+	 * @param base the region to subtract from
+	 * @param subtracted the regions to subtract
+	 */
+	public DifferenceRegion(@NotNull Region base, @NotNull Region... subtracted) {
+		super(concat(base, subtracted), false);
+		this.base = base;
+		boundingBox = base.getBoundingBox();
+	}
+	
+	/**
+	 * Creates a new region which is the difference of the specified regions.
+	 *
+	 * @param base the region to subtract from
+	 * @param subtracted the regions to subtract
+	 */
+	public DifferenceRegion(@NotNull Region base, @NotNull Collection<? extends Region> subtracted) {
+		this(base, subtracted.toArray(new Region[0]));
+	}
+	
+	
+	
+	/**
+	 * Gets the region this region subtracts from.
+	 *
+	 * @return the base region
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public Region getBase() {
+		return base;
+	}
+	
+	@Nullable
+	@Override
+	@Contract(pure = true)
+	public String getWorldName() {
+		return base.getWorldName();
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return boundingBox;
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInside(@Nullable World world, @Nullable UUID worldId, int x, int y, int z) {
+		if (!isInsideChild(0, world, worldId, x, y, z)) {
+			return false;
+		}
+		
+		for (int i = 1; i < getChildCount(); i++) {
+			if (isInsideChild(i, world, worldId, x, y, z)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	
+	
+	private static Region[] concat(Region base, Region[] subtracted) {
+		Region[] result = new Region[subtracted.length + 1];
+		result[0] = base;
+		//the base must stay the first child, the subtracted regions are ordered here instead
+		Region[] sorted = subtracted.clone();
+		Arrays.sort(sorted, Comparator.comparingInt(Region::getCost));
+		BlockBox baseBox = base.getBoundingBox();
+		int size = 1;
+		for (Region region : sorted) {
+			if (region.getBoundingBox().intersects(baseBox)) {
+				result[size++] = region;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+}
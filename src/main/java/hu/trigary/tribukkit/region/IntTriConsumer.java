@@ -0,0 +1,18 @@
+package hu.trigary.tribukkit.region;
+
+/**
+ * Represents an operation that accepts three int-valued arguments, eg. block coordinates.
+ * This is the primitive specialization of a three-arity consumer, used to avoid boxing and allocations.
+ */
+@FunctionalInterface
+public interface IntTriConsumer {
+	
+	/**
+	 * Performs this operation on the given arguments.
+	 *
+	 * @param x the first argument, eg. the X coordinate
+	 * @param y the second argument, eg. the Y coordinate
+	 * @param z the third argument, eg. the Z coordinate
+	 */
+	void accept(int x, int y, int z);
+}
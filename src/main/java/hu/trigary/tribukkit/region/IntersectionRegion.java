@@ -0,0 +1,93 @@
+package hu.trigary.tribukkit.region;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * A region which contains the positions which are inside all of its child regions.
+ * For more information, see {@link CompositeRegion} JavaDocs.
+ */
+public class IntersectionRegion extends CompositeRegion {
+	private final BlockBox boundingBox;
+	private final String world;
+	private final boolean empty;
+	
+	/**
+	 * Creates a new region which is the intersection of the specified regions.
+	 *
+	 * @param regions the regions to intersect, at least one
+	 */
+	public IntersectionRegion(@NotNull Region... regions) {
+		super(regions, true);
+		BlockBox box = getChildBoundingBox(0);
+		String commonWorld = null;
+		boolean noCommonWorld = false;
+		for (int i = 0; i < regions.length; i++) {
+			if (i != 0 && box != null) {
+				box = box.intersection(getChildBoundingBox(i));
+			}
+			
+			String childWorld = regions[i].getWorldName();
+			if (commonWorld == null) {
+				commonWorld = childWorld;
+			} else if (childWorld != null && !childWorld.equals(commonWorld)) {
+				noCommonWorld = true;
+			}
+		}
+		empty = box == null || noCommonWorld;
+		boundingBox = box == null ? getChildBoundingBox(0) : box;
+		world = commonWorld;
+	}
+	
+	/**
+	 * Creates a new region which is the intersection of the specified regions.
+	 *
+	 * @param regions the regions to intersect, at least one
+	 */
+	public IntersectionRegion(@NotNull Collection<? extends Region> regions) {
+		this(regions.toArray(new Region[0]));
+	}
+	
+	
+	
+	@Nullable
+	@Override
+	@Contract(pure = true)
+	public String getWorldName() {
+		return world;
+	}
+	
+	/**
+	 * Gets the smallest box which contains all (block) positions which are inside this region.
+	 * If the bounding boxes or the worlds of the children don't overlap, then this region is empty
+	 * and the bounding box of the first child is returned.
+	 *
+	 * @return the bounding box of this region
+	 */
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return boundingBox;
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInside(@Nullable World world, @Nullable UUID worldId, int x, int y, int z) {
+		if (empty) {
+			return false;
+		}
+		
+		for (int i = 0; i < getChildCount(); i++) {
+			if (!isInsideChild(i, world, worldId, x, y, z)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
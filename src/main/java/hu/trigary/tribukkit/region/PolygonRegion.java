@@ -0,0 +1,200 @@
+package hu.trigary.tribukkit.region;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A region which compares world names, and has a valid (polygonal) range for X, Z coordinates.
+ * The Y coordinates have a valid range as well, which is unlimited by default.
+ * <br><br>
+ * The vertices are block positions, the polygon contains the blocks which are inside it or on its edges,
+ * this way eg. a rectangular polygon contains the same blocks as a {@link RectangleRegion} with the same corners.
+ * Self-intersecting polygons are supported, they use the even-odd rule.
+ * <br><br>
+ * The polygon is rasterized once, when the region is created: a bitset of 16x16 bits
+ * is stored for each chunk the polygon overlaps, chunks which are entirely inside the polygon share the same bitset.
+ * Therefore containment checks are a bounding box check, a chunk lookup and a bit test,
+ * regardless of the count of vertices, and the memory usage is proportional to the count of covered chunks.
+ */
+public class PolygonRegion extends WorldRegion {
+	private static final long[] FULL_CHUNK = {-1L, -1L, -1L, -1L};
+	private final int[] xs;
+	private final int[] zs;
+	private final int minY;
+	private final int maxY;
+	private final BlockBox boundingBox;
+	private final ChunkMap<long[]> chunks = new ChunkMap<>();
+	
+	/**
+	 * Creates a new region instance with the specified options.
+	 *
+	 * @param world the world name to compare
+	 * @param xs the X coordinates of the vertices
+	 * @param zs the Z coordinates of the vertices, in the same order
+	 * @param yLimitAlpha one of the ends of the valid Y coordinate range
+	 * @param yLimitBeta the other end of the valid Y coordinate range
+	 */
+	public PolygonRegion(@Nullable String world, @NotNull int[] xs, @NotNull int[] zs, int yLimitAlpha, int yLimitBeta) {
+		super(world);
+		Validate.isTrue(xs.length == zs.length, "The count of X and Z coordinates must match");
+		Validate.isTrue(xs.length >= 3, "A polygon must have at least 3 vertices");
+		this.xs = xs.clone();
+		this.zs = zs.clone();
+		minY = Math.min(yLimitAlpha, yLimitBeta);
+		maxY = Math.max(yLimitAlpha, yLimitBeta);
+		boundingBox = new BlockBox(Arrays.stream(xs).min().getAsInt(), Arrays.stream(xs).max().getAsInt(),
+				minY, maxY, Arrays.stream(zs).min().getAsInt(), Arrays.stream(zs).max().getAsInt());
+		rasterize();
+	}
+	
+	/**
+	 * Creates a new region instance with the specified options.
+	 * The Y coordinates are not checked.
+	 *
+	 * @param world the world name to compare
+	 * @param xs the X coordinates of the vertices
+	 * @param zs the Z coordinates of the vertices, in the same order
+	 */
+	public PolygonRegion(@Nullable String world, @NotNull int[] xs, @NotNull int[] zs) {
+		this(world, xs, zs, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Creates a new region instance with the specified options.
+	 *
+	 * @param world the world name to compare
+	 * @param vertices objects containing the X, Z coordinates of the vertices
+	 * @param yLimitAlpha one of the ends of the valid Y coordinate range
+	 * @param yLimitBeta the other end of the valid Y coordinate range
+	 */
+	public PolygonRegion(@Nullable String world, @NotNull List<Vector> vertices, int yLimitAlpha, int yLimitBeta) {
+		this(world, vertices.stream().mapToInt(Vector::getBlockX).toArray(),
+				vertices.stream().mapToInt(Vector::getBlockZ).toArray(), yLimitAlpha, yLimitBeta);
+	}
+	
+	
+	
+	/**
+	 * Gets the X coordinates of the vertices.
+	 *
+	 * @return a copy of the X coordinates
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public int[] getVertexXs() {
+		return xs.clone();
+	}
+	
+	/**
+	 * Gets the Z coordinates of the vertices, in the same order as {@link #getVertexXs()}.
+	 *
+	 * @return a copy of the Z coordinates
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public int[] getVertexZs() {
+		return zs.clone();
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public int getCost() {
+		return super.getCost() + 3;
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return boundingBox;
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInsideBounds(int x, int y, int z) {
+		if (!boundingBox.contains(x, y, z)) {
+			return false;
+		}
+		
+		long[] bits = chunks.get(x >> 4, z >> 4);
+		int index = (z & 15) << 4 | x & 15;
+		return bits != null && (bits[index >> 6] & 1L << index) != 0 && super.isInsideBounds(x, y, z);
+	}
+	
+	
+	
+	private void rasterize() {
+		//scanlines: blocks between pairs of edge crossings (even-odd rule)
+		double[] crossings = new double[xs.length];
+		for (int z = boundingBox.getMinZ(); z <= boundingBox.getMaxZ(); z++) {
+			int count = 0;
+			for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+				if ((zs[i] <= z) != (zs[j] <= z)) {
+					crossings[count++] = xs[i] + (double) (z - zs[i]) * (xs[j] - xs[i]) / (zs[j] - zs[i]);
+				}
+			}
+			Arrays.sort(crossings, 0, count);
+			for (int i = 0; i + 1 < count; i += 2) {
+				setRange((int) Math.ceil(crossings[i]), (int) Math.floor(crossings[i + 1]), z);
+			}
+		}
+		
+		//edges: the blocks on the edges are inside as well
+		for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+			int dx = xs[i] - xs[j];
+			int dz = zs[i] - zs[j];
+			int steps = gcd(Math.abs(dx), Math.abs(dz));
+			if (steps == 0) {
+				set(xs[i], zs[i]);
+				continue;
+			}
+			for (int step = 0; step <= steps; step++) {
+				set(xs[j] + dx / steps * step, zs[j] + dz / steps * step);
+			}
+		}
+		
+		compactFullChunks();
+	}
+	
+	private void setRange(int fromX, int toX, int z) {
+		for (int x = fromX; x <= toX; x++) {
+			set(x, z);
+		}
+	}
+	
+	private void set(int x, int z) {
+		long[] bits = chunks.get(x >> 4, z >> 4);
+		if (bits == null) {
+			bits = new long[4];
+			chunks.put(x >> 4, z >> 4, bits);
+		}
+		int index = (z & 15) << 4 | x & 15;
+		bits[index >> 6] |= 1L << index;
+	}
+	
+	private void compactFullChunks() {
+		for (int chunkX = boundingBox.getMinX() >> 4; chunkX <= boundingBox.getMaxX() >> 4; chunkX++) {
+			for (int chunkZ = boundingBox.getMinZ() >> 4; chunkZ <= boundingBox.getMaxZ() >> 4; chunkZ++) {
+				long[] bits = chunks.get(chunkX, chunkZ);
+				if (bits != null && Arrays.equals(bits, FULL_CHUNK)) {
+					chunks.put(chunkX, chunkZ, FULL_CHUNK);
+				}
+			}
+		}
+	}
+	
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int temp = a % b;
+			a = b;
+			b = temp;
+		}
+		return a;
+	}
+}
@@ -59,13 +59,35 @@ public class RectangleRegion extends WorldRegion {
 	
 	@Override
 	@Contract(pure = true)
-	public boolean isInside(@NotNull Location location) {
-		if (!super.isInside(location)) {
-			return false;
+	public int getCost() {
+		return super.getCost() + 2;
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return new BlockBox(minX, maxX, Integer.MIN_VALUE, Integer.MAX_VALUE, minZ, maxZ);
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInsideBounds(int x, int y, int z) {
+		return minX <= x && maxX >= x && minZ <= z && maxZ >= z && super.isInsideBounds(x, y, z);
+	}
+	
+	@Override
+	protected void isInsideBoundsEach(@NotNull int[] xs, @NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		//non-short-circuit operators: no branches in the loop, the bits are accumulated in a local
+		for (int start = 0; start < xs.length; start += 64) {
+			int end = Math.min(xs.length, start + 64);
+			long word = 0;
+			for (int i = start; i < end; i++) {
+				int x = xs[i];
+				int z = zs[i];
+				word |= (minX <= x & maxX >= x & minZ <= z & maxZ >= z ? 1L : 0L) << i;
+			}
+			words[start >> 6] = word;
 		}
-		
-		int x = location.getBlockX();
-		int z = location.getBlockZ();
-		return minX <= x && maxX >= x && minZ <= z && maxZ >= z;
 	}
 }
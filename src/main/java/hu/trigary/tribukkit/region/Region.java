@@ -1,10 +1,21 @@
 package hu.trigary.tribukkit.region;
 
+import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Entity;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.UUID;
 
 /**
  * Regions are used to check whether a {@link Location} is inside or not.
@@ -18,9 +29,52 @@ import org.jetbrains.annotations.NotNull;
  * When a non-null value is provided, but {@link Location#getWorld()} returns null,
  * then it will also be considered a match.
  * When both values are non-null, then the world names will be compared (case-sensitive).
+ * <br><br>
+ * Regions can be indexed by {@link RegionIndex}, which relies on {@link #getWorldName()}
+ * and {@link #getBoundingBox()}, therefore implementations should override these methods if possible.
+ * <br><br>
+ * The blocks inside regions with a bounded {@link #getBoundingBox()} can be iterated
+ * via the forEachBlock methods, without allocating a {@link Location} for each block.
  */
 public abstract class Region {
 	
+	/**
+	 * Gets the name of the world this region is limited to.
+	 * All positions which are inside this region must be in this world.
+	 *
+	 * @return the name of the world or null, if this region is not limited to a single world
+	 */
+	@Nullable
+	@Contract(pure = true)
+	public String getWorldName() {
+		return null;
+	}
+	
+	/**
+	 * Gets the estimated relative cost of the isInside methods of this region,
+	 * used eg. by {@link CompositeRegion} to check the cheapest regions first.
+	 * For reference: comparing worlds costs 1, comparing a coordinate range costs 1,
+	 * a distance check costs 2. The default implementation returns 10.
+	 *
+	 * @return the estimated cost of a containment check
+	 */
+	@Contract(pure = true)
+	public int getCost() {
+		return 10;
+	}
+	
+	/**
+	 * Gets the smallest box which contains all (block) positions which are inside this region.
+	 * The default implementation returns {@link BlockBox#INFINITE}.
+	 *
+	 * @return the bounding box of this region
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return BlockBox.INFINITE;
+	}
+	
 	/**
 	 * Gets whether the specified (block) position is inside this region.
 	 *
@@ -30,6 +84,216 @@ public abstract class Region {
 	@Contract(pure = true)
 	public abstract boolean isInside(@NotNull Location location);
 	
+	/**
+	 * Gets whether the specified block position is inside this region.
+	 * This method doesn't require a {@link Location} instance,
+	 * the built-in implementations don't allocate and compare worlds by their UUIDs.
+	 * The default implementation delegates to {@link #isInside(Location)}.
+	 *
+	 * @param world the world of the position, null stands for "matching any world"
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return whether the position is inside
+	 */
+	@Contract(pure = true)
+	public boolean isInside(@Nullable World world, int x, int y, int z) {
+		return isInside(new Location(world, x, y, z));
+	}
+	
+	/**
+	 * Gets whether the specified (block) position is inside this region.
+	 * This method doesn't require a {@link Location} or a {@link World} instance,
+	 * the built-in implementations don't allocate and compare worlds by their UUIDs.
+	 * The default implementation delegates to {@link #isInside(Location)}.
+	 * Positions in worlds which are not loaded are never inside.
+	 *
+	 * @param worldId the UUID of the world of the position, null stands for "matching any world"
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return whether the position is inside
+	 */
+	@Contract(pure = true)
+	public boolean isInside(@Nullable UUID worldId, double x, double y, double z) {
+		if (worldId == null) {
+			return isInside(new Location(null, x, y, z));
+		}
+		
+		World world = Bukkit.getWorld(worldId);
+		return world != null && isInside(new Location(world, x, y, z));
+	}
+	
+	/**
+	 * Gets which of the specified block positions are inside this region.
+	 * The built-in implementations check the world only once and don't allocate per position.
+	 *
+	 * @param world the world of the positions, null stands for "matching any world"
+	 * @param xs the X coordinates to check
+	 * @param ys the Y coordinates to check
+	 * @param zs the Z coordinates to check, all arrays must have the same length
+	 * @return the set whose bit at index i is set if the i-th position is inside
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public BitSet isInsideEach(@Nullable World world, @NotNull int[] xs, @NotNull int[] ys, @NotNull int[] zs) {
+		Validate.isTrue(xs.length == ys.length && ys.length == zs.length, "The coordinate arrays' lengths must match");
+		long[] words = new long[(xs.length + 63) >> 6];
+		isInsideEach(world, xs, ys, zs, words);
+		return BitSet.valueOf(words);
+	}
+	
+	/**
+	 * Gets which of the specified entities' (block) positions are inside this region.
+	 * Unlike {@link #isInside(Entity)}, this method doesn't allocate a {@link Location} per entity.
+	 * If all entities are in the same world, then the positions are checked
+	 * via {@link #isInsideEach(World, int[], int[], int[])}.
+	 *
+	 * @param entities the entities to check
+	 * @return the set whose bit at index i is set if the i-th entity (in iteration order) is inside
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public BitSet isInsideEach(@NotNull Collection<? extends Entity> entities) {
+		int[] xs = new int[entities.size()];
+		int[] ys = new int[xs.length];
+		int[] zs = new int[xs.length];
+		World[] worlds = new World[xs.length];
+		boolean sameWorld = true;
+		Location location = new Location(null, 0, 0, 0);
+		int index = 0;
+		for (Entity entity : entities) {
+			entity.getLocation(location);
+			xs[index] = location.getBlockX();
+			ys[index] = location.getBlockY();
+			zs[index] = location.getBlockZ();
+			worlds[index] = location.getWorld();
+			sameWorld &= worlds[index] == worlds[0];
+			index++;
+		}
+		
+		long[] words = new long[(xs.length + 63) >> 6];
+		if (sameWorld) {
+			isInsideEach(xs.length == 0 ? null : worlds[0], xs, ys, zs, words);
+		} else {
+			for (int i = 0; i < xs.length; i++) {
+				if (isInside(worlds[i], xs[i], ys[i], zs[i])) {
+					words[i >> 6] |= 1L << i;
+				}
+			}
+		}
+		return BitSet.valueOf(words);
+	}
+	
+	/**
+	 * Sets the bits of the positions which are inside this region in the specified array.
+	 * Used by the isInsideEach methods, implementations should check the world only once
+	 * and use tight loops without allocations or virtual calls per position.
+	 * The default implementation checks each position via {@link #isInside(World, int, int, int)}.
+	 *
+	 * @param world the world of the positions, null stands for "matching any world"
+	 * @param xs the X coordinates to check
+	 * @param ys the Y coordinates to check
+	 * @param zs the Z coordinates to check, all arrays have the same length
+	 * @param words the (initially cleared) bits to set, the i-th position belongs to {@code words[i >> 6] & 1L << i}
+	 */
+	protected void isInsideEach(@Nullable World world, @NotNull int[] xs,
+			@NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		for (int i = 0; i < xs.length; i++) {
+			if (isInside(world, xs[i], ys[i], zs[i])) {
+				words[i >> 6] |= 1L << i;
+			}
+		}
+	}
+	
+	/**
+	 * Calls the specified consumer with the coordinates of each block inside this region.
+	 * The blocks are walked chunk by chunk, the world is not checked (nor passed to the consumer).
+	 * The bounding box of this region must be bounded (see {@link BlockBox#isBounded()}).
+	 *
+	 * @param consumer the consumer to call with the X, Y, Z coordinates of the blocks
+	 */
+	public void forEachBlock(@NotNull IntTriConsumer consumer) {
+		new BlockWalker(this, consumer).walk(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Calls the specified consumer with the coordinates of each block inside this region,
+	 * on the main thread, split across multiple ticks: at most about the specified count of block positions
+	 * are checked each tick, the first ones in the next tick.
+	 * Every checked position counts, even if it's not inside this region,
+	 * this way sparse regions take more ticks instead of longer ticks.
+	 * The blocks are walked chunk by chunk, the world is not checked (nor passed to the consumer).
+	 * The bounding box of this region must be bounded (see {@link BlockBox#isBounded()}).
+	 *
+	 * @param plugin the plugin to register the task with
+	 * @param blocksPerTick the count of block positions to check per tick, rounded up to the end of a chunk section
+	 * @param consumer the consumer to call with the X, Y, Z coordinates of the blocks
+	 * @param callback the callback to run after all blocks have been processed
+	 * @return the task which can be used to stop the iteration
+	 */
+	@NotNull
+	public BukkitTask forEachBlock(@NotNull JavaPlugin plugin, int blocksPerTick,
+			@NotNull IntTriConsumer consumer, @Nullable Runnable callback) {
+		Validate.isTrue(blocksPerTick > 0, "The count of blocks per tick must be positive: ", blocksPerTick);
+		BlockWalker walker = new BlockWalker(this, consumer);
+		return new BukkitRunnable() {
+			@Override
+			public void run() {
+				walker.walk(blocksPerTick);
+				if (walker.isDone()) {
+					cancel();
+					if (callback != null) {
+						callback.run();
+					}
+				}
+			}
+		}.runTaskTimer(plugin, 1, 1);
+	}
+	
+	/**
+	 * Gets the count of blocks inside this region.
+	 * The bounding box of this region must be bounded (see {@link BlockBox#isBounded()}).
+	 * The default implementation walks all blocks, like {@link #forEachBlock(IntTriConsumer)}.
+	 *
+	 * @return the count of blocks inside
+	 */
+	@Contract(pure = true)
+	public long getVolume() {
+		return new BlockWalker(this, (x, y, z) -> {}).walk(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Calls the specified consumer with the coordinates of each block inside both this region
+	 * and the specified (bounded) box. Used by the forEachBlock methods and {@link #getVolume()},
+	 * which call this method with the parts of the bounding box in each chunk section.
+	 * The default implementation checks each block via {@link #isInside(World, int, int, int)}.
+	 *
+	 * @param minX the min X coordinate of the box
+	 * @param minY the min Y coordinate of the box
+	 * @param minZ the min Z coordinate of the box
+	 * @param maxX the max X coordinate of the box
+	 * @param maxY the max Y coordinate of the box
+	 * @param maxZ the max Z coordinate of the box
+	 * @param consumer the consumer to call with the X, Y, Z coordinates of the blocks
+	 * @return the count of blocks passed to the consumer
+	 */
+	protected int forEachBlockInside(int minX, int minY, int minZ,
+			int maxX, int maxY, int maxZ, @NotNull IntTriConsumer consumer) {
+		int count = 0;
+		for (int y = minY; y <= maxY; y++) {
+			for (int z = minZ; z <= maxZ; z++) {
+				for (int x = minX; x <= maxX; x++) {
+					if (isInside((World) null, x, y, z)) {
+						consumer.accept(x, y, z);
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
 	/**
 	 * Gets whether the specified entity's (block) position is inside this region.
 	 *
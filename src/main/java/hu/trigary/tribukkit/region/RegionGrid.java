@@ -0,0 +1,120 @@
+package hu.trigary.tribukkit.region;
+
+import java.util.Arrays;
+
+/**
+ * The chunk grid shared by {@link RegionIndex} and {@link RegionResolver}:
+ * each entry is registered in each chunk column its bounding box overlaps.
+ * Entries whose bounding boxes overlap too many chunks (eg. regions with infinite boundaries)
+ * are kept in a separate array instead, which must be checked by every query.
+ * Entries are identified by their regions, which are compared by identity.
+ * This class is not thread safe.
+ */
+final class RegionGrid {
+	static final long MAX_INDEXED_CHUNKS = 4096;
+	private final ChunkMap<Entry[]> chunks = new ChunkMap<>();
+	private Entry[] largeEntries = Entry.EMPTY;
+	
+	
+	
+	void add(Entry entry) {
+		BlockBox box = entry.box;
+		if (box.getChunkCount() > MAX_INDEXED_CHUNKS) {
+			largeEntries = append(largeEntries, entry);
+			return;
+		}
+		
+		for (int chunkX = box.getMinX() >> 4; chunkX <= box.getMaxX() >> 4; chunkX++) {
+			for (int chunkZ = box.getMinZ() >> 4; chunkZ <= box.getMaxZ() >> 4; chunkZ++) {
+				Entry[] entries = chunks.get(chunkX, chunkZ);
+				chunks.put(chunkX, chunkZ, entries == null ? new Entry[]{entry} : append(entries, entry));
+			}
+		}
+	}
+	
+	void remove(Region region, BlockBox box) {
+		if (box.getChunkCount() > MAX_INDEXED_CHUNKS) {
+			largeEntries = without(largeEntries, region);
+			return;
+		}
+		
+		for (int chunkX = box.getMinX() >> 4; chunkX <= box.getMaxX() >> 4; chunkX++) {
+			for (int chunkZ = box.getMinZ() >> 4; chunkZ <= box.getMaxZ() >> 4; chunkZ++) {
+				Entry[] entries = without(chunks.get(chunkX, chunkZ), region);
+				if (entries.length == 0) {
+					chunks.remove(chunkX, chunkZ);
+				} else {
+					chunks.put(chunkX, chunkZ, entries);
+				}
+			}
+		}
+	}
+	
+	void clear() {
+		chunks.clear();
+		largeEntries = Entry.EMPTY;
+	}
+	
+	boolean isEmpty() {
+		return chunks.size() == 0 && largeEntries.length == 0;
+	}
+	
+	/**
+	 * Gets the entries registered in the specified chunk column.
+	 * The entries in {@link #getLargeEntries()} are not included.
+	 * The returned array must not be modified.
+	 *
+	 * @param chunkX the X coordinate of the chunk
+	 * @param chunkZ the Z coordinate of the chunk
+	 * @return the entries of the chunk or null, if there are none
+	 */
+	Entry[] getEntries(int chunkX, int chunkZ) {
+		return chunks.get(chunkX, chunkZ);
+	}
+	
+	/**
+	 * Gets the entries which are not registered in the chunk columns, since they overlap too many chunks.
+	 * The returned array must not be modified.
+	 *
+	 * @return the entries which are not registered per chunk
+	 */
+	Entry[] getLargeEntries() {
+		return largeEntries;
+	}
+	
+	
+	
+	private static Entry[] append(Entry[] entries, Entry entry) {
+		Entry[] result = Arrays.copyOf(entries, entries.length + 1);
+		result[entries.length] = entry;
+		return result;
+	}
+	
+	private static Entry[] without(Entry[] entries, Region region) {
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i].region == region) {
+				Entry[] result = new Entry[entries.length - 1];
+				System.arraycopy(entries, 0, result, 0, i);
+				System.arraycopy(entries, i + 1, result, i, result.length - i);
+				return result;
+			}
+		}
+		return entries;
+	}
+	
+	
+	
+	/**
+	 * A region and its bounding box, users of the grid may extend this class to store extra data.
+	 */
+	static class Entry {
+		static final Entry[] EMPTY = new Entry[0];
+		final Region region;
+		final BlockBox box;
+		
+		Entry(Region region, BlockBox box) {
+			this.region = region;
+			this.box = box;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package hu.trigary.tribukkit.region;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A spatial index of {@link Region} instances, which can quickly find the regions containing a location.
+ * The regions are indexed by their world names and their bounding boxes (see {@link Region#getBoundingBox()}):
+ * each region is registered in each chunk column its bounding box overlaps,
+ * therefore a query only has to check the regions registered in a single chunk.
+ * Regions whose bounding boxes overlap too many chunks (eg. regions with infinite boundaries)
+ * are kept in a separate list, which is checked by every query.
+ * <br><br>
+ * Regions are compared by identity. Regions can be added and removed at any time, no rebuilding is needed.
+ * This class is not thread safe.
+ */
+public class RegionIndex {
+	private final Map<Region, BlockBox> regions = new IdentityHashMap<>();
+	private final Map<String, RegionGrid> worlds = new HashMap<>();
+	private final RegionGrid anyWorld = new RegionGrid();
+	
+	
+	
+	/**
+	 * Adds the specified region to this index.
+	 *
+	 * @param region the region to add, which must not already be present in this index
+	 */
+	public void add(@NotNull Region region) {
+		BlockBox box = region.getBoundingBox();
+		Validate.isTrue(regions.putIfAbsent(region, box) == null, "The region is already present in the index");
+		String world = region.getWorldName();
+		(world == null ? anyWorld : worlds.computeIfAbsent(world, ignored -> new RegionGrid()))
+				.add(new RegionGrid.Entry(region, box));
+	}
+	
+	/**
+	 * Removes the specified region from this index.
+	 *
+	 * @param region the region to remove
+	 * @return whether the region was present in this index
+	 */
+	public boolean remove(@NotNull Region region) {
+		BlockBox box = regions.remove(region);
+		if (box == null) {
+			return false;
+		}
+		
+		String world = region.getWorldName();
+		if (world == null) {
+			anyWorld.remove(region, box);
+		} else {
+			RegionGrid grid = worlds.get(world);
+			grid.remove(region, box);
+			if (grid.isEmpty()) {
+				worlds.remove(world);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Removes all regions from this index.
+	 */
+	public void clear() {
+		regions.clear();
+		worlds.clear();
+		anyWorld.clear();
+	}
+	
+	/**
+	 * Gets whether the specified region is present in this index.
+	 *
+	 * @param region the region to check
+	 * @return whether the region is present
+	 */
+	@Contract(pure = true)
+	public boolean contains(@NotNull Region region) {
+		return regions.containsKey(region);
+	}
+	
+	/**
+	 * Gets the count of regions in this index.
+	 *
+	 * @return the count of regions
+	 */
+	@Contract(pure = true)
+	public int size() {
+		return regions.size();
+	}
+	
+	/**
+	 * Gets an unmodifiable view of all regions in this index.
+	 *
+	 * @return all regions in this index
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public Collection<Region> getRegions() {
+		return Collections.unmodifiableSet(regions.keySet());
+	}
+	
+	
+	
+	/**
+	 * Gets all regions in this index which contain the specified (block) position.
+	 *
+	 * @param location the position to check
+	 * @return the regions containing the position, in no particular order
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public List<Region> regionsAt(@NotNull Location location) {
+		return regionsAt(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	/**
+	 * Gets all regions in this index which contain the specified block position.
+	 *
+	 * @param world the world of the position, null stands for "matching any world"
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return the regions containing the position, in no particular order
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public List<Region> regionsAt(@Nullable World world, int x, int y, int z) {
+		List<Region> result = new ArrayList<>();
+		collect(anyWorld, world, x, y, z, result);
+		if (world == null) {
+			for (RegionGrid grid : worlds.values()) {
+				collect(grid, null, x, y, z, result);
+			}
+		} else {
+			RegionGrid grid = worlds.get(world.getName());
+			if (grid != null) {
+				collect(grid, world, x, y, z, result);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Gets whether any region in this index contains the specified (block) position.
+	 *
+	 * @param location the position to check
+	 * @return whether at least one region contains the position
+	 */
+	@Contract(pure = true)
+	public boolean anyAt(@NotNull Location location) {
+		return anyAt(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	/**
+	 * Gets whether any region in this index contains the specified block position.
+	 *
+	 * @param world the world of the position, null stands for "matching any world"
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return whether at least one region contains the position
+	 */
+	@Contract(pure = true)
+	public boolean anyAt(@Nullable World world, int x, int y, int z) {
+		if (any(anyWorld, world, x, y, z)) {
+			return true;
+		}
+		
+		if (world == null) {
+			for (RegionGrid grid : worlds.values()) {
+				if (any(grid, null, x, y, z)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		RegionGrid grid = worlds.get(world.getName());
+		return grid != null && any(grid, world, x, y, z);
+	}
+	
+	
+	
+	private static void collect(RegionGrid grid, World world, int x, int y, int z, List<Region> result) {
+		collect(grid.getEntries(x >> 4, z >> 4), world, x, y, z, result);
+		collect(grid.getLargeEntries(), world, x, y, z, result);
+	}
+	
+	private static void collect(RegionGrid.Entry[] entries, World world, int x, int y, int z, List<Region> result) {
+		if (entries != null) {
+			for (RegionGrid.Entry entry : entries) {
+				if (entry.box.contains(x, y, z) && entry.region.isInside(world, x, y, z)) {
+					result.add(entry.region);
+				}
+			}
+		}
+	}
+	
+	private static boolean any(RegionGrid grid, World world, int x, int y, int z) {
+		return any(grid.getEntries(x >> 4, z >> 4), world, x, y, z)
+				|| any(grid.getLargeEntries(), world, x, y, z);
+	}
+	
+	private static boolean any(RegionGrid.Entry[] entries, World world, int x, int y, int z) {
+		if (entries != null) {
+			for (RegionGrid.Entry entry : entries) {
+				if (entry.box.contains(x, y, z) && entry.region.isInside(world, x, y, z)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
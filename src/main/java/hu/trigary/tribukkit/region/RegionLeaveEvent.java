@@ -0,0 +1,61 @@
+package hu.trigary.tribukkit.region;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Called when a player leaves a region tracked by a {@link RegionTracker}, including when the player
+ * quits the server while inside the region or when the region is removed while the player is inside it
+ * (and {@link RegionTracker#refresh()} is called).
+ */
+public class RegionLeaveEvent extends PlayerEvent {
+	private static final HandlerList HANDLERS = new HandlerList();
+	private final RegionTracker tracker;
+	private final Region region;
+	
+	RegionLeaveEvent(@NotNull Player player, @NotNull RegionTracker tracker, @NotNull Region region) {
+		super(player);
+		this.tracker = tracker;
+		this.region = region;
+	}
+	
+	
+	
+	/**
+	 * Gets the tracker which detected the change.
+	 *
+	 * @return the tracker which fired this event
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public RegionTracker getTracker() {
+		return tracker;
+	}
+	
+	/**
+	 * Gets the region the player has left.
+	 *
+	 * @return the left region
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public Region getRegion() {
+		return region;
+	}
+	
+	
+	
+	@NotNull
+	@Override
+	public HandlerList getHandlers() {
+		return HANDLERS;
+	}
+	
+	@NotNull
+	public static HandlerList getHandlerList() {
+		return HANDLERS;
+	}
+}
@@ -0,0 +1,356 @@
+package hu.trigary.tribukkit.region;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Resolves overlapping {@link Region} instances by their priorities:
+ * finds the region with the highest priority which contains a location.
+ * Regions with the same priority are ordered by the time they were added: the earlier one wins.
+ * Regions are compared by identity, their priorities are specified when they are added.
+ * <br><br>
+ * The answers are cached per chunk section (16x16x16 area):
+ * if the highest priority region overlapping a section contains the whole section,
+ * then the section's answer is that region and lookups are a single table read.
+ * Otherwise only the regions overlapping the section are checked, in the order of their priorities,
+ * and only until the first region containing the whole section.
+ * The cached answers are computed lazily, they are invalidated for the chunk columns
+ * overlapped by the bounding box of an added or removed region (see {@link Region#getBoundingBox()}).
+ * Chunk columns without any candidate regions are not cached, and the cache of a world is discarded
+ * once it holds too many chunk columns, so exploring players can't make it grow without bounds.
+ * Whether a region contains a whole section is checked ignoring the world,
+ * therefore regions must only depend on their world names (see {@link Region#getWorldName()}) and the coordinates.
+ * Regions without a world name (eg. a union of regions in different worlds) might not match every world,
+ * therefore they never become the answer of a whole section: they are always checked per lookup.
+ * <br><br>
+ * This class is not thread safe.
+ */
+public class RegionResolver {
+	private static final int MAX_CACHED_CHUNKS = 65536;
+	private static final int SECTION_VOLUME = 16 * 16 * 16;
+	private static final IntTriConsumer IGNORED = (x, y, z) -> {};
+	private final Map<Region, Entry> regions = new IdentityHashMap<>();
+	private final Map<String, RegionGrid> grids = new HashMap<>();
+	private final RegionGrid anyWorldGrid = new RegionGrid();
+	private final Map<String, ChunkMap<SectionColumn>> caches = new HashMap<>();
+	private long nextSequence;
+	
+	
+	
+	/**
+	 * Adds the specified region to this resolver.
+	 *
+	 * @param region the region to add, which must not already be present in this resolver
+	 * @param priority the priority of the region, the higher the value, the higher the priority
+	 */
+	public void add(@NotNull Region region, int priority) {
+		Validate.isTrue(!regions.containsKey(region), "The region is already present in the resolver");
+		Entry entry = new Entry(region, region.getBoundingBox(), priority, nextSequence++);
+		regions.put(region, entry);
+		String world = region.getWorldName();
+		(world == null ? anyWorldGrid : grids.computeIfAbsent(world, ignored -> new RegionGrid())).add(entry);
+		invalidate(world, entry.box);
+	}
+	
+	/**
+	 * Removes the specified region from this resolver.
+	 *
+	 * @param region the region to remove
+	 * @return whether the region was present in this resolver
+	 */
+	public boolean remove(@NotNull Region region) {
+		Entry entry = regions.remove(region);
+		if (entry == null) {
+			return false;
+		}
+		
+		String world = region.getWorldName();
+		if (world == null) {
+			anyWorldGrid.remove(region, entry.box);
+		} else {
+			RegionGrid grid = grids.get(world);
+			grid.remove(region, entry.box);
+			if (grid.isEmpty()) {
+				grids.remove(world);
+			}
+		}
+		invalidate(world, entry.box);
+		return true;
+	}
+	
+	/**
+	 * Removes all regions from this resolver.
+	 */
+	public void clear() {
+		regions.clear();
+		grids.clear();
+		anyWorldGrid.clear();
+		caches.clear();
+	}
+	
+	/**
+	 * Discards all cached answers, freeing their memory. They will be recomputed lazily.
+	 */
+	public void clearCache() {
+		caches.clear();
+	}
+	
+	/**
+	 * Gets whether the specified region is present in this resolver.
+	 *
+	 * @param region the region to check
+	 * @return whether the region is present
+	 */
+	@Contract(pure = true)
+	public boolean contains(@NotNull Region region) {
+		return regions.containsKey(region);
+	}
+	
+	/**
+	 * Gets the priority the specified region was added with.
+	 *
+	 * @param region the region, which must be present in this resolver
+	 * @return the priority of the region
+	 */
+	@Contract(pure = true)
+	public int getPriority(@NotNull Region region) {
+		Entry entry = regions.get(region);
+		Validate.notNull(entry, "The region is not present in the resolver");
+		return entry.priority;
+	}
+	
+	/**
+	 * Gets the count of regions in this resolver.
+	 *
+	 * @return the count of regions
+	 */
+	@Contract(pure = true)
+	public int size() {
+		return regions.size();
+	}
+	
+	
+	
+	/**
+	 * Gets the region with the highest priority which contains the specified (block) position.
+	 *
+	 * @param location the position to check, whose world must not be null
+	 * @return the region with the highest priority containing the position or null, if there is no such region
+	 */
+	@Nullable
+	public Region resolve(@NotNull Location location) {
+		World world = location.getWorld();
+		Validate.notNull(world, "The world of the location must not be null");
+		return resolve(world, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	/**
+	 * Gets the region with the highest priority which contains the specified block position.
+	 *
+	 * @param world the world of the position
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return the region with the highest priority containing the position or null, if there is no such region
+	 */
+	@Nullable
+	public Region resolve(@NotNull World world, int x, int y, int z) {
+		String worldName = world.getName();
+		ChunkMap<SectionColumn> cache = caches.computeIfAbsent(worldName, ignored -> new ChunkMap<>());
+		SectionColumn column = cache.get(x >> 4, z >> 4);
+		if (column == null) {
+			if (!hasCandidates(worldName, x >> 4, z >> 4)) {
+				return null;
+			}
+			
+			if (cache.size() >= MAX_CACHED_CHUNKS) {
+				cache.clear();
+			}
+			column = new SectionColumn(y >> 4);
+			cache.put(x >> 4, z >> 4, column);
+		}
+		
+		Section section = column.get(y >> 4);
+		if (section == null) {
+			section = computeSection(worldName, x >> 4, y >> 4, z >> 4);
+			column.set(y >> 4, section);
+		}
+		
+		if (section.candidates == null) {
+			return section.region;
+		}
+		for (Entry entry : section.candidates) {
+			if (entry.box.contains(x, y, z) && entry.region.isInside(world, x, y, z)) {
+				return entry.region;
+			}
+		}
+		return null;
+	}
+	
+	
+	
+	private boolean hasCandidates(String world, int chunkX, int chunkZ) {
+		if (hasCandidates(anyWorldGrid, chunkX, chunkZ)) {
+			return true;
+		}
+		RegionGrid grid = grids.get(world);
+		return grid != null && hasCandidates(grid, chunkX, chunkZ);
+	}
+	
+	private Section computeSection(String world, int chunkX, int section, int chunkZ) {
+		BlockBox box = new BlockBox(chunkX << 4, (chunkX << 4) + 15, section << 4,
+				(section << 4) + 15, chunkZ << 4, (chunkZ << 4) + 15);
+		List<Entry> overlapping = new ArrayList<>();
+		collect(anyWorldGrid, chunkX, chunkZ, box, overlapping);
+		RegionGrid grid = grids.get(world);
+		if (grid != null) {
+			collect(grid, chunkX, chunkZ, box, overlapping);
+		}
+		overlapping.sort(Entry.ORDER);
+		
+		for (int i = 0; i < overlapping.size(); i++) {
+			Entry entry = overlapping.get(i);
+			if (entry.region.getWorldName() != null && entry.box.intersection(box).equals(box)
+					&& entry.region.forEachBlockInside(box.getMinX(), box.getMinY(), box.getMinZ(),
+					box.getMaxX(), box.getMaxY(), box.getMaxZ(), IGNORED) == SECTION_VOLUME) {
+				//regions after the first one containing the whole section can never win
+				return i == 0 ? new Section(entry.region, null)
+						: new Section(null, overlapping.subList(0, i + 1).toArray(new Entry[0]));
+			}
+		}
+		return overlapping.isEmpty() ? Section.EMPTY : new Section(null, overlapping.toArray(new Entry[0]));
+	}
+	
+	private void invalidate(String world, BlockBox box) {
+		if (world == null) {
+			for (ChunkMap<SectionColumn> cache : caches.values()) {
+				invalidate(cache, box);
+			}
+		} else {
+			ChunkMap<SectionColumn> cache = caches.get(world);
+			if (cache != null) {
+				invalidate(cache, box);
+			}
+		}
+	}
+	
+	private static void invalidate(ChunkMap<SectionColumn> cache, BlockBox box) {
+		if (box.getChunkCount() > Math.max(RegionGrid.MAX_INDEXED_CHUNKS, cache.size())) {
+			cache.clear();
+			return;
+		}
+		
+		for (int chunkX = box.getMinX() >> 4; chunkX <= box.getMaxX() >> 4; chunkX++) {
+			for (int chunkZ = box.getMinZ() >> 4; chunkZ <= box.getMaxZ() >> 4; chunkZ++) {
+				SectionColumn column = cache.get(chunkX, chunkZ);
+				if (column != null) {
+					column.invalidate(box.getMinY() >> 4, box.getMaxY() >> 4);
+				}
+			}
+		}
+	}
+	
+	private static boolean hasCandidates(RegionGrid grid, int chunkX, int chunkZ) {
+		if (grid.getEntries(chunkX, chunkZ) != null) {
+			return true;
+		}
+		
+		int minX = chunkX << 4;
+		int minZ = chunkZ << 4;
+		for (RegionGrid.Entry entry : grid.getLargeEntries()) {
+			BlockBox box = entry.box;
+			if (box.getMinX() <= minX + 15 && box.getMaxX() >= minX
+					&& box.getMinZ() <= minZ + 15 && box.getMaxZ() >= minZ) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static void collect(RegionGrid grid, int chunkX, int chunkZ, BlockBox box, List<Entry> result) {
+		collect(grid.getEntries(chunkX, chunkZ), box, result);
+		collect(grid.getLargeEntries(), box, result);
+	}
+	
+	private static void collect(RegionGrid.Entry[] entries, BlockBox box, List<Entry> result) {
+		if (entries != null) {
+			for (RegionGrid.Entry entry : entries) {
+				if (entry.box.intersects(box)) {
+					result.add((Entry) entry);
+				}
+			}
+		}
+	}
+	
+	
+	
+	private static final class Entry extends RegionGrid.Entry {
+		static final Comparator<Entry> ORDER = Comparator.<Entry>comparingInt(entry -> -entry.priority)
+				.thenComparingLong(entry -> entry.sequence);
+		final int priority;
+		final long sequence;
+		
+		Entry(Region region, BlockBox box, int priority, long sequence) {
+			super(region, box);
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+	}
+	
+	private static final class Section {
+		static final Section EMPTY = new Section(null, null);
+		final Region region;
+		final Entry[] candidates;
+		
+		Section(Region region, Entry[] candidates) {
+			this.region = region;
+			this.candidates = candidates;
+		}
+	}
+	
+	private static final class SectionColumn {
+		private static final int MAX_SPAN = 256;
+		private int minSection;
+		private Section[] sections;
+		
+		SectionColumn(int section) {
+			minSection = section;
+			sections = new Section[1];
+		}
+		
+		Section get(int section) {
+			int index = section - minSection;
+			return index >= 0 && index < sections.length ? sections[index] : null;
+		}
+		
+		void set(int section, Section value) {
+			if (Math.max(section, minSection + sections.length - 1L) - Math.min(section, minSection) >= MAX_SPAN) {
+				//far apart sections, eg. queries outside the world's height: restart the window instead
+				minSection = section;
+				sections = new Section[1];
+			} else if (section < minSection) {
+				Section[] grown = new Section[sections.length + minSection - section];
+				System.arraycopy(sections, 0, grown, minSection - section, sections.length);
+				sections = grown;
+				minSection = section;
+			} else if (section - minSection >= sections.length) {
+				sections = Arrays.copyOf(sections, section - minSection + 1);
+			}
+			sections[section - minSection] = value;
+		}
+		
+		void invalidate(int fromSection, int toSection) {
+			int from = Math.max(0, fromSection - minSection);
+			int to = (int) Math.min(sections.length - 1L, (long) toSection - minSection);
+			if (from <= to) {
+				Arrays.fill(sections, from, to + 1, null);
+			}
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package hu.trigary.tribukkit.region;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import hu.trigary.tribukkit.TriJavaPlugin;
+import hu.trigary.tribukkit.json.JsonIO;
+import hu.trigary.tribukkit.json.JsonRegionAdapter;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * A set of named regions, stored in a JSON file, along with a {@link RegionIndex} containing them.
+ * The file contains a single JSON object, which maps the names of the regions
+ * to the regions in the format of {@link JsonRegionAdapter}.
+ * <br><br>
+ * The contents of this set are immutable, modifications replace them as a whole:
+ * the new regions are parsed and indexed first, after which the new contents are swapped in atomically.
+ * This way readers always either see the previous or the new contents, never a partially built set,
+ * and the set can be reloaded in the background (see {@link #loadAsync(JavaPlugin, Runnable)}).
+ * The regions and the index of the same contents should be accessed via the same {@link Contents} instance.
+ */
+public class RegionSet {
+	private static final Type MAP_TYPE = new TypeToken<LinkedHashMap<String, Region>>() {}.getType();
+	private static final Gson GSON = new GsonBuilder()
+			.registerTypeHierarchyAdapter(Region.class, new JsonRegionAdapter())
+			.setPrettyPrinting()
+			.create();
+	private final File file;
+	private volatile Contents contents = new Contents(Collections.emptyMap());
+	
+	/**
+	 * Creates a new, empty set which is stored in the specified file.
+	 *
+	 * @param file the file to load from and save to
+	 */
+	public RegionSet(@NotNull File file) {
+		this.file = file;
+	}
+	
+	/**
+	 * Creates a new, empty set which is stored in the specified file in the specified plugin's data folder.
+	 *
+	 * @param plugin the plugin whose data folder to use
+	 * @param fileName the name of the file to load from and save to
+	 */
+	public RegionSet(@NotNull JavaPlugin plugin, @NotNull String fileName) {
+		this(new File(plugin.getDataFolder(), fileName));
+	}
+	
+	
+	
+	/**
+	 * Gets the current contents of this set.
+	 *
+	 * @return the current, immutable contents
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public Contents getContents() {
+		return contents;
+	}
+	
+	/**
+	 * Gets the region with the specified name from the current contents.
+	 *
+	 * @param name the name of the region
+	 * @return the region with the specified name or null, if there is no such region
+	 */
+	@Nullable
+	@Contract(pure = true)
+	public Region getRegion(@NotNull String name) {
+		return contents.regions.get(name);
+	}
+	
+	/**
+	 * Replaces the contents of this set with the specified regions.
+	 * The regions are indexed on the calling thread before they are swapped in.
+	 *
+	 * @param regions the new regions, mapped by their names
+	 */
+	public void setRegions(@NotNull Map<String, ? extends Region> regions) {
+		contents = new Contents(regions);
+	}
+	
+	
+	
+	/**
+	 * Replaces the contents of this set with the contents of the file.
+	 * If the file doesn't exist or is empty, then this set becomes empty.
+	 * This method does I/O, therefore it should not be called from the main thread with huge files.
+	 *
+	 * @throws RuntimeException if the file could not be read or parsed,
+	 * in which case the contents of this set are not changed
+	 */
+	public void load() {
+		contents = read();
+	}
+	
+	/**
+	 * Replaces the contents of this set with the contents of the file.
+	 * The file is read, parsed and indexed on a background thread,
+	 * the new contents are swapped in on the main thread, after which the callback is called.
+	 * If the file could not be read or parsed, then the error is logged,
+	 * the contents of this set are not changed and the callback is not called.
+	 *
+	 * @param plugin the plugin to register the tasks with
+	 * @param callback the callback to call on the main thread after the swap,
+	 * eg. to update a {@link RegionTracker} via {@link RegionTracker#setIndex(RegionIndex)}
+	 */
+	public void loadAsync(@NotNull JavaPlugin plugin, @Nullable Runnable callback) {
+		Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+			Contents loaded;
+			try {
+				loaded = read();
+			} catch (RuntimeException e) {
+				TriJavaPlugin.log(Level.SEVERE, "Error while loading regions from: " + file, e);
+				return;
+			}
+			
+			Bukkit.getScheduler().runTask(plugin, () -> {
+				contents = loaded;
+				if (callback != null) {
+					callback.run();
+				}
+			});
+		});
+	}
+	
+	/**
+	 * Writes the current contents of this set to the file.
+	 * This method does I/O, therefore it should not be called from the main thread with huge sets.
+	 *
+	 * @throws RuntimeException if the file could not be written
+	 */
+	public void save() {
+		JsonIO.save(GSON, file, MAP_TYPE, new LinkedHashMap<>(contents.regions));
+	}
+	
+	
+	
+	private Contents read() {
+		Map<String, Region> regions = JsonIO.load(GSON, file, MAP_TYPE, null);
+		return new Contents(regions == null ? Collections.emptyMap() : regions);
+	}
+	
+	
+	
+	/**
+	 * The immutable contents of a {@link RegionSet}: its regions and an index containing them.
+	 */
+	public static final class Contents {
+		private final Map<String, Region> regions;
+		private final RegionIndex index = new RegionIndex();
+		
+		private Contents(Map<String, ? extends Region> regions) {
+			this.regions = Collections.unmodifiableMap(new LinkedHashMap<>(regions));
+			for (Region region : regions.values()) {
+				if (!index.contains(region)) {
+					index.add(region);
+				}
+			}
+		}
+		
+		
+		
+		/**
+		 * Gets the regions, mapped by their names, in the order they were specified.
+		 *
+		 * @return the unmodifiable map of the regions
+		 */
+		@NotNull
+		@Contract(pure = true)
+		public Map<String, Region> getRegions() {
+			return regions;
+		}
+		
+		/**
+		 * Gets the index containing the regions. The returned index must not be modified.
+		 *
+		 * @return the index of the regions
+		 */
+		@NotNull
+		@Contract(pure = true)
+		public RegionIndex getIndex() {
+			return index;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package hu.trigary.tribukkit.region;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.*;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Keeps track of which regions of a {@link RegionIndex} each online player is inside
+ * and fires {@link RegionEnterEvent} and {@link RegionLeaveEvent} whenever this changes.
+ * The regions are only re-evaluated when a player moves to another block (or world),
+ * and thanks to the index only the regions near the player are checked.
+ * Players riding a vehicle don't move on their own: they are evaluated at their vehicle's location instead.
+ * <br><br>
+ * The tracker doesn't notice when regions are added to or removed from the index,
+ * {@link #refresh()} should be called after the index has been modified.
+ * Leave events are fired before enter events.
+ * This class must only be used from the main thread.
+ * Instances can be created via {@link hu.trigary.tribukkit.TriJavaPlugin#enableRegionTracker(RegionIndex)}.
+ */
+public class RegionTracker implements Listener {
+	private static final Region[] EMPTY = new Region[0];
+	private final Map<UUID, Membership> memberships = new HashMap<>();
+	private RegionIndex index;
+	
+	/**
+	 * Creates a new tracker which tracks the regions in the specified index.
+	 * The tracker must be registered as a listener and {@link #refresh()} should be called
+	 * to start tracking the players who are already online.
+	 *
+	 * @param index the regions to track
+	 */
+	public RegionTracker(@NotNull RegionIndex index) {
+		this.index = index;
+	}
+	
+	
+	
+	/**
+	 * Gets the index whose regions this instance tracks.
+	 *
+	 * @return the tracked index
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public RegionIndex getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Replaces the index whose regions this instance tracks, then re-evaluates the regions of all online players.
+	 * Regions are compared by identity: the players leave the regions which are not present in the new index
+	 * and enter the regions which were not present in the previous index.
+	 *
+	 * @param index the new regions to track
+	 */
+	public void setIndex(@NotNull RegionIndex index) {
+		this.index = index;
+		refresh();
+	}
+	
+	/**
+	 * Gets the tracked regions the specified player is currently inside.
+	 *
+	 * @param player the player to check
+	 * @return the regions the player is inside, in no particular order
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public List<Region> getRegions(@NotNull Player player) {
+		Membership membership = memberships.get(player.getUniqueId());
+		return membership == null ? Collections.emptyList() : List.of(membership.regions);
+	}
+	
+	/**
+	 * Gets whether the specified player is currently inside the specified region,
+	 * according to the last evaluation.
+	 *
+	 * @param player the player to check
+	 * @param region the region to check
+	 * @return whether the player is inside the region
+	 */
+	@Contract(pure = true)
+	public boolean isInside(@NotNull Player player, @NotNull Region region) {
+		Membership membership = memberships.get(player.getUniqueId());
+		return membership != null && indexOf(membership.regions, region) != -1;
+	}
+	
+	
+	
+	/**
+	 * Re-evaluates the regions of all online players.
+	 * Should be called after the index has been modified.
+	 */
+	public void refresh() {
+		for (Player player : Bukkit.getOnlinePlayers()) {
+			refresh(player);
+		}
+	}
+	
+	/**
+	 * Re-evaluates the regions of the specified player.
+	 *
+	 * @param player the player to re-evaluate
+	 */
+	public void refresh(@NotNull Player player) {
+		Location location = player.getLocation();
+		update(player, location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), true);
+	}
+	
+	
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onJoin(PlayerJoinEvent event) {
+		refresh(event.getPlayer());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(PlayerQuitEvent event) {
+		Player player = event.getPlayer();
+		Membership membership = memberships.remove(player.getUniqueId());
+		if (membership != null) {
+			for (Region region : membership.regions) {
+				Bukkit.getPluginManager().callEvent(new RegionLeaveEvent(player, this, region));
+			}
+		}
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onMove(PlayerMoveEvent event) {
+		//teleports are also handled here: PlayerTeleportEvent extends PlayerMoveEvent
+		Location to = event.getTo();
+		if (to != null) {
+			update(event.getPlayer(), to.getWorld(), to.getBlockX(), to.getBlockY(), to.getBlockZ(), false);
+		}
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onVehicleMove(VehicleMoveEvent event) {
+		//PlayerMoveEvent is not fired for passengers
+		Location to = event.getTo();
+		updatePassengers(event.getVehicle(), to.getWorld(), to.getBlockX(), to.getBlockY(), to.getBlockZ());
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onRespawn(PlayerRespawnEvent event) {
+		Location location = event.getRespawnLocation();
+		update(event.getPlayer(), location.getWorld(), location.getBlockX(),
+				location.getBlockY(), location.getBlockZ(), false);
+	}
+	
+	
+	
+	private void update(Player player, World world, int x, int y, int z, boolean force) {
+		Membership membership = memberships.get(player.getUniqueId());
+		if (membership == null) {
+			membership = new Membership();
+			memberships.put(player.getUniqueId(), membership);
+		} else if (!force && membership.world == world
+				&& membership.x == x && membership.y == y && membership.z == z) {
+			return;
+		}
+		
+		Region[] oldRegions = membership.regions;
+		List<Region> found = index.regionsAt(world, x, y, z);
+		Region[] newRegions = found.isEmpty() ? EMPTY : found.toArray(EMPTY);
+		membership.world = world;
+		membership.x = x;
+		membership.y = y;
+		membership.z = z;
+		membership.regions = newRegions;
+		
+		//the state is updated before the events are fired, this way listeners can safely teleport the player
+		for (Region region : oldRegions) {
+			if (indexOf(newRegions, region) == -1) {
+				Bukkit.getPluginManager().callEvent(new RegionLeaveEvent(player, this, region));
+			}
+		}
+		for (Region region : newRegions) {
+			if (indexOf(oldRegions, region) == -1) {
+				Bukkit.getPluginManager().callEvent(new RegionEnterEvent(player, this, region));
+			}
+		}
+	}
+	
+	private void updatePassengers(Entity vehicle, World world, int x, int y, int z) {
+		//passengers may be vehicles themselves, eg. a player riding a pig in a boat
+		for (Entity passenger : vehicle.getPassengers()) {
+			if (passenger instanceof Player) {
+				update((Player) passenger, world, x, y, z, false);
+			}
+			updatePassengers(passenger, world, x, y, z);
+		}
+	}
+	
+	private static int indexOf(Region[] regions, Region region) {
+		for (int i = 0; i < regions.length; i++) {
+			if (regions[i] == region) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	
+	
+	private static final class Membership {
+		World world;
+		int x;
+		int y;
+		int z;
+		Region[] regions = EMPTY;
+	}
+}
@@ -0,0 +1,33 @@
+package hu.trigary.tribukkit.region;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Makes {@link WorldRegion} instances resolve their worlds again whenever a world gets loaded or unloaded,
+ * since a world with the same name might have a different UUID after it gets reloaded.
+ * Automatically registered by {@link hu.trigary.tribukkit.TriJavaPlugin}.
+ */
+public class RegionWorldListener implements Listener {
+	
+	/**
+	 * Creates a new listener instance.
+	 * Plugins extending {@link hu.trigary.tribukkit.TriJavaPlugin} should not register another instance.
+	 */
+	public RegionWorldListener() {}
+	
+	
+	
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void onLoad(WorldLoadEvent event) {
+		WorldRegion.worldGeneration++;
+	}
+	
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onUnload(WorldUnloadEvent event) {
+		WorldRegion.worldGeneration++;
+	}
+}
@@ -0,0 +1,157 @@
+package hu.trigary.tribukkit.region;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Location;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A region which compares world names, and has a valid (spherical) range for X, Y, Z coordinates.
+ * <br><br>
+ * The distances are calculated with overflow-safe long arithmetic, against the floor of the squared radius.
+ * Positions outside the cube around the sphere are rejected and positions inside the cube
+ * inscribed in the sphere are accepted without calculating the distance.
+ * The radius is capped at about 1.75 billion, so that the squared distances fit into a long.
+ */
+public class SphereRegion extends WorldRegion {
+	private static final long MAX_RADIUS = CircleRegion.floorSqrt(Long.MAX_VALUE / 3);
+	private final int centerX;
+	private final int centerY;
+	private final int centerZ;
+	private final float radius;
+	private final long radiusSquared;
+	private final long outerRadius;
+	private final long innerRadius;
+	
+	/**
+	 * Creates a new region instance with the specified options.
+	 *
+	 * @param world the world name to compare
+	 * @param centerX the center of the sphere
+	 * @param centerY the center of the sphere
+	 * @param centerZ the center of the sphere
+	 * @param radius the radius of the sphere
+	 */
+	public SphereRegion(@Nullable String world, int centerX, int centerY, int centerZ, float radius) {
+		super(world);
+		Validate.isTrue(radius >= 0, "The radius must not be negative: ", radius);
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.centerZ = centerZ;
+		this.radius = radius;
+		radiusSquared = CircleRegion.floorSquare(radius, MAX_RADIUS);
+		outerRadius = CircleRegion.floorSqrt(radiusSquared);
+		innerRadius = CircleRegion.floorSqrt(radiusSquared / 3);
+	}
+	
+	/**
+	 * Creates a new region instance with the specified options.
+	 *
+	 * @param world the world name to compare
+	 * @param center the X, Y, Z center of the sphere
+	 * @param radius the radius of the sphere
+	 */
+	public SphereRegion(@Nullable String world, @NotNull Vector center, float radius) {
+		this(world, center.getBlockX(), center.getBlockY(), center.getBlockZ(), radius);
+	}
+	
+	/**
+	 * Creates a new region instance with the specified options.
+	 *
+	 * @param world the world name to compare
+	 * @param center the X, Y, Z center of the sphere
+	 * @param radius the radius of the sphere
+	 */
+	public SphereRegion(@Nullable String world, @NotNull Location center, float radius) {
+		this(world, center.toVector(), radius);
+	}
+	
+	
+	
+	/**
+	 * Gets the X coordinate of the center of the sphere.
+	 *
+	 * @return the X coordinate of the center
+	 */
+	@Contract(pure = true)
+	public int getCenterX() {
+		return centerX;
+	}
+	
+	/**
+	 * Gets the Y coordinate of the center of the sphere.
+	 *
+	 * @return the Y coordinate of the center
+	 */
+	@Contract(pure = true)
+	public int getCenterY() {
+		return centerY;
+	}
+	
+	/**
+	 * Gets the Z coordinate of the center of the sphere.
+	 *
+	 * @return the Z coordinate of the center
+	 */
+	@Contract(pure = true)
+	public int getCenterZ() {
+		return centerZ;
+	}
+	
+	/**
+	 * Gets the radius of the sphere.
+	 *
+	 * @return the radius
+	 */
+	@Contract(pure = true)
+	public float getRadius() {
+		return radius;
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public int getCost() {
+		return super.getCost() + 2;
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return new BlockBox(CircleRegion.clamp(centerX - outerRadius), CircleRegion.clamp(centerX + outerRadius),
+				CircleRegion.clamp(centerY - outerRadius), CircleRegion.clamp(centerY + outerRadius),
+				CircleRegion.clamp(centerZ - outerRadius), CircleRegion.clamp(centerZ + outerRadius));
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInsideBounds(int x, int y, int z) {
+		long dx = Math.abs((long) x - centerX);
+		long dy = Math.abs((long) y - centerY);
+		long dz = Math.abs((long) z - centerZ);
+		if (dx > outerRadius || dy > outerRadius || dz > outerRadius) {
+			return false;
+		}
+		return (dx <= innerRadius && dy <= innerRadius && dz <= innerRadius
+				|| dx * dx + dy * dy + dz * dz <= radiusSquared) && super.isInsideBounds(x, y, z);
+	}
+	
+	@Override
+	protected void isInsideBoundsEach(@NotNull int[] xs, @NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		for (int start = 0; start < xs.length; start += 64) {
+			int end = Math.min(xs.length, start + 64);
+			long word = 0;
+			for (int i = start; i < end; i++) {
+				//the sum may overflow, but only when the position is outside the outer cube
+				long dx = Math.abs(xs[i] - (long) centerX);
+				long dy = Math.abs(ys[i] - (long) centerY);
+				long dz = Math.abs(zs[i] - (long) centerZ);
+				word |= (dx <= outerRadius & dy <= outerRadius & dz <= outerRadius
+						& dx * dx + dy * dy + dz * dz <= radiusSquared ? 1L : 0L) << i;
+			}
+			words[start >> 6] = word;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package hu.trigary.tribukkit.region;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A region which contains the positions which are inside at least one of its child regions.
+ * For more information, see {@link CompositeRegion} JavaDocs.
+ */
+public class UnionRegion extends CompositeRegion {
+	private final BlockBox boundingBox;
+	private final String world;
+	
+	/**
+	 * Creates a new region which is the union of the specified regions.
+	 *
+	 * @param regions the regions to merge, at least one
+	 */
+	public UnionRegion(@NotNull Region... regions) {
+		super(regions, true);
+		BlockBox box = getChildBoundingBox(0);
+		String commonWorld = regions[0].getWorldName();
+		for (int i = 1; i < regions.length; i++) {
+			box = box.union(getChildBoundingBox(i));
+			if (!Objects.equals(commonWorld, regions[i].getWorldName())) {
+				commonWorld = null;
+			}
+		}
+		boundingBox = box;
+		world = commonWorld;
+	}
+	
+	/**
+	 * Creates a new region which is the union of the specified regions.
+	 *
+	 * @param regions the regions to merge, at least one
+	 */
+	public UnionRegion(@NotNull Collection<? extends Region> regions) {
+		this(regions.toArray(new Region[0]));
+	}
+	
+	
+	
+	@Nullable
+	@Override
+	@Contract(pure = true)
+	public String getWorldName() {
+		return world;
+	}
+	
+	@NotNull
+	@Override
+	@Contract(pure = true)
+	public BlockBox getBoundingBox() {
+		return boundingBox;
+	}
+	
+	@Override
+	@Contract(pure = true)
+	protected boolean isInside(@Nullable World world, @Nullable UUID worldId, int x, int y, int z) {
+		for (int i = 0; i < getChildCount(); i++) {
+			if (isInsideChild(i, world, worldId, x, y, z)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -1,16 +1,27 @@
 package hu.trigary.tribukkit.region;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.UUID;
+
 /**
  * A region which only compares world names.
  * For more information, see {@link Region} JavaDocs.
+ * <br><br>
+ * The world name is resolved to a world UUID once (when the world is loaded),
+ * after which worlds are compared by their UUIDs instead of their names.
+ * Subclasses should override {@link #isInsideBounds(int, int, int)} instead of the isInside methods,
+ * this way all isInside overloads share the same (world and bounds) logic.
  */
 public class WorldRegion extends Region {
+	static volatile int worldGeneration;
 	private final String world;
+	private ResolvedWorld resolvedWorld;
 	
 	/**
 	 * Creates a region which only compares world names.
@@ -24,10 +35,160 @@ public class WorldRegion extends Region {
 	
 	
 	
+	@Nullable
+	@Override
+	@Contract(pure = true)
+	public String getWorldName() {
+		return world;
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public int getCost() {
+		return 1;
+	}
+	
 	@Override
 	@Contract(pure = true)
 	public boolean isInside(@NotNull Location location) {
-		return world == null || location.getWorld() == null
-				|| location.getWorld().getName().equals(world);
+		return isInside(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public boolean isInside(@Nullable World world, int x, int y, int z) {
+		return isInsideBounds(x, y, z) && isInsideWorld(world);
+	}
+	
+	@Override
+	@Contract(pure = true)
+	public boolean isInside(@Nullable UUID worldId, double x, double y, double z) {
+		return isInsideBounds(Location.locToBlock(x), Location.locToBlock(y), Location.locToBlock(z))
+				&& isInsideWorld(worldId);
+	}
+	
+	
+	
+	@Override
+	protected void isInsideEach(@Nullable World world, @NotNull int[] xs,
+			@NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		if (isInsideWorld(world)) {
+			isInsideBoundsEach(xs, ys, zs, words);
+		}
+	}
+	
+	@Override
+	protected int forEachBlockInside(int minX, int minY, int minZ,
+			int maxX, int maxY, int maxZ, @NotNull IntTriConsumer consumer) {
+		int count = 0;
+		for (int y = minY; y <= maxY; y++) {
+			for (int z = minZ; z <= maxZ; z++) {
+				for (int x = minX; x <= maxX; x++) {
+					if (isInsideBounds(x, y, z)) {
+						consumer.accept(x, y, z);
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Gets whether the specified block coordinates are inside this region,
+	 * without checking the world.
+	 * This implementation always returns true.
+	 *
+	 * @param x the X coordinate to check
+	 * @param y the Y coordinate to check
+	 * @param z the Z coordinate to check
+	 * @return whether the coordinates are inside
+	 */
+	@Contract(pure = true)
+	protected boolean isInsideBounds(int x, int y, int z) {
+		return true;
+	}
+	
+	/**
+	 * Sets the bits of the block coordinates which are inside this region in the specified array,
+	 * without checking the world. Used by the isInsideEach methods.
+	 * Subclasses overriding {@link #isInsideBounds(int, int, int)} should override this method as well
+	 * with a loop which the JIT can inline and unroll, eg. the implementation of this method:
+	 * the isInsideBounds call in a subclass' own loop only ever sees that subclass.
+	 *
+	 * @param xs the X coordinates to check
+	 * @param ys the Y coordinates to check
+	 * @param zs the Z coordinates to check, all arrays have the same length
+	 * @param words the bits to set, the i-th position belongs to {@code words[i >> 6] & 1L << i}
+	 */
+	protected void isInsideBoundsEach(@NotNull int[] xs, @NotNull int[] ys, @NotNull int[] zs, @NotNull long[] words) {
+		for (int i = 0; i < xs.length; i++) {
+			if (isInsideBounds(xs[i], ys[i], zs[i])) {
+				words[i >> 6] |= 1L << i;
+			}
+		}
+	}
+	
+	/**
+	 * Gets whether the specified world matches the world of this region.
+	 *
+	 * @param world the world to check
+	 * @return whether the world matches
+	 */
+	@Contract(pure = true)
+	protected final boolean isInsideWorld(@Nullable World world) {
+		if (this.world == null || world == null) {
+			return true;
+		}
+		
+		UUID id = getResolvedWorldId();
+		return id == null ? world.getName().equals(this.world) : id.equals(world.getUID());
+	}
+	
+	/**
+	 * Gets whether the world with the specified UUID matches the world of this region.
+	 *
+	 * @param worldId the UUID of the world to check
+	 * @return whether the world matches
+	 */
+	@Contract(pure = true)
+	protected final boolean isInsideWorld(@Nullable UUID worldId) {
+		if (this.world == null || worldId == null) {
+			return true;
+		}
+		
+		UUID id = getResolvedWorldId();
+		if (id != null) {
+			return id.equals(worldId);
+		}
+		
+		World world = Bukkit.getWorld(worldId);
+		return world != null && world.getName().equals(this.world);
+	}
+	
+	
+	
+	private UUID getResolvedWorldId() {
+		//racy but benign: the instances are immutable, at worst the world gets resolved multiple times
+		ResolvedWorld resolved = resolvedWorld;
+		int generation = worldGeneration;
+		if (resolved == null || resolved.generation != generation) {
+			World loaded = Bukkit.getWorld(world);
+			resolved = new ResolvedWorld(loaded == null ? null : loaded.getUID(), generation);
+			resolvedWorld = resolved;
+		}
+		return resolved.id;
+	}
+	
+	
+	
+	private static final class ResolvedWorld {
+		final UUID id;
+		final int generation;
+		
+		ResolvedWorld(UUID id, int generation) {
+			this.id = id;
+			this.generation = generation;
+		}
 	}
 }
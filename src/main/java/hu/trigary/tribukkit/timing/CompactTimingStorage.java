@@ -1,15 +1,37 @@
 package hu.trigary.tribukkit.timing;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * A {@link TimingStorage} implementation which has an O(1) space complexity.
  * Should be enough for most cases, but for graphs, etc. {@link VerboseTimingStorage} can be used.
  */
 public class CompactTimingStorage extends TimingStorage {
+	private static final VarHandle SUM;
+	private static final VarHandle COUNT;
+	private static final VarHandle SAMPLE_COUNT;
+	private static final VarHandle MIN;
+	private static final VarHandle MAX;
 	private int sum;
 	private int count;
-	private int min;
+	private int sampleCount;
+	private int min = Integer.MAX_VALUE;
 	private int max;
 	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			SUM = lookup.findVarHandle(CompactTimingStorage.class, "sum", int.class);
+			COUNT = lookup.findVarHandle(CompactTimingStorage.class, "count", int.class);
+			SAMPLE_COUNT = lookup.findVarHandle(CompactTimingStorage.class, "sampleCount", int.class);
+			MIN = lookup.findVarHandle(CompactTimingStorage.class, "min", int.class);
+			MAX = lookup.findVarHandle(CompactTimingStorage.class, "max", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
 	CompactTimingStorage(String id) {
 		super(id);
 	}
@@ -18,6 +40,7 @@ public class CompactTimingStorage extends TimingStorage {
 	
 	/**
 	 * Gets the sum of all measured elapsed times in milliseconds.
+	 * If the ID is sampled (see {@link TimingKey#setSampleRate(int)}), then this is an estimate.
 	 *
 	 * @return the sum of delta times
 	 */
@@ -27,6 +50,7 @@ public class CompactTimingStorage extends TimingStorage {
 	
 	/**
 	 * Gets the count of measurements associated with this ID which took place.
+	 * If the ID is sampled (see {@link TimingKey#setSampleRate(int)}), then this is an estimate.
 	 *
 	 * @return the count of measurements linked to this ID
 	 */
@@ -34,41 +58,69 @@ public class CompactTimingStorage extends TimingStorage {
 		return count;
 	}
 	
+	/**
+	 * Gets the count of measurements which were actually measured.
+	 * This is the same as {@link #getRecordCount()}, unless the ID is sampled.
+	 *
+	 * @return the count of measured samples linked to this ID
+	 */
+	public int getSampleCount() {
+		return sampleCount;
+	}
+	
 	/**
 	 * Gets the mean average of all measured elapsed times in milliseconds.
 	 *
-	 * @return the mean of delta times
+	 * @return the mean of delta times or -1, if there were no measurements
 	 */
 	public int getMeanMillis() {
-		return Math.round((float) sum / count);
+		return count == 0 ? -1 : Math.round((float) sum / count);
 	}
 	
 	/**
 	 * Gets the lowest measured elapsed time in milliseconds.
 	 *
-	 * @return the lowest delta time
+	 * @return the lowest delta time or -1, if there were no measurements
 	 */
 	public int getMinMillis() {
-		return min;
+		return count == 0 ? -1 : min;
 	}
 	
 	/**
 	 * Gets the highest measured elapsed time in milliseconds.
 	 *
-	 * @return the highest delta time
+	 * @return the highest delta time or -1, if there were no measurements
 	 */
 	public int getMaxMillis() {
-		return max;
+		return count == 0 ? -1 : max;
 	}
 	
 	
 	
 	@Override
-	void addRecord(int millis) {
-		sum += millis;
-		count++;
-		min = Math.min(min, millis);
-		max = Math.max(max, millis);
+	void addRecord(long nanos, int sampleRate) {
+		int millis = (int) (nanos / 1000000);
+		//single writer: plain reads, release writes so that concurrent merges see complete values
+		SUM.setRelease(this, sum + millis * sampleRate);
+		COUNT.setRelease(this, count + sampleRate);
+		SAMPLE_COUNT.setRelease(this, sampleCount + 1);
+		MIN.setRelease(this, Math.min(min, millis));
+		MAX.setRelease(this, Math.max(max, millis));
+	}
+	
+	@Override
+	void merge(TimingStorage other) {
+		sum += (int) SUM.getAcquire(other);
+		count += (int) COUNT.getAcquire(other);
+		sampleCount += (int) SAMPLE_COUNT.getAcquire(other);
+		min = Math.min(min, (int) MIN.getAcquire(other));
+		max = Math.max(max, (int) MAX.getAcquire(other));
+	}
+	
+	@Override
+	TimingSnapshot toSnapshot(long startTimestamp, long timestamp) {
+		return new TimingSnapshot(startTimestamp, timestamp, getId(), count, sampleCount, sum * 1000000L, toNanos(getMinMillis()),
+				-1, -1, -1, -1, toNanos(getMaxMillis()));
 	}
 	
 	
@@ -77,7 +129,11 @@ public class CompactTimingStorage extends TimingStorage {
 	public String toString() {
 		return "Timing region: " + getId() + System.lineSeparator()
 				+ " - Mean: " + getMeanMillis() + System.lineSeparator()
-				+ " - Min: " + min + System.lineSeparator()
-				+ " - Max: " + max;
+				+ " - Min: " + getMinMillis() + System.lineSeparator()
+				+ " - Max: " + getMaxMillis();
+	}
+	
+	private static long toNanos(int millis) {
+		return millis < 0 ? -1 : millis * 1000000L;
 	}
 }
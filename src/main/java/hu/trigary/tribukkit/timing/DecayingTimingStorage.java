@@ -0,0 +1,242 @@
+package hu.trigary.tribukkit.timing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@link TimingStorage} implementation which has an O(1) space complexity
+ * and which keeps an exponentially decaying mean and variance:
+ * the weight of a measurement halves every {@link #HALF_LIFE_SECONDS} seconds.
+ * This makes the averages reflect the recent behavior, even if the data is never reset.
+ * The decaying values are kept when {@link TimingManager#resetAll()} is called,
+ * while the count, sum, min and max values only contain the measurements since the last reset.
+ * <br><br>
+ * The decaying values of threads which have not recorded any measurements since the last reset
+ * are only included again once they record a new measurement.
+ */
+public class DecayingTimingStorage extends TimingStorage {
+	/**
+	 * The time it takes for the weight of a measurement to halve.
+	 */
+	public static final int HALF_LIFE_SECONDS = 60;
+	private static final double DECAY_PER_NANO = Math.log(2) / (HALF_LIFE_SECONDS * 1000000000d);
+	private static final VarHandle WEIGHT;
+	private static final VarHandle WEIGHTED_SUM;
+	private static final VarHandle WEIGHTED_SQUARE_SUM;
+	private static final VarHandle LAST_NANO;
+	private static final VarHandle SUM;
+	private static final VarHandle COUNT;
+	private static final VarHandle SAMPLE_COUNT;
+	private static final VarHandle MIN;
+	private static final VarHandle MAX;
+	private double weight;
+	private double weightedSum;
+	private double weightedSquareSum;
+	private long lastNano;
+	private long sum;
+	private long count;
+	private long sampleCount;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			WEIGHT = lookup.findVarHandle(DecayingTimingStorage.class, "weight", double.class);
+			WEIGHTED_SUM = lookup.findVarHandle(DecayingTimingStorage.class, "weightedSum", double.class);
+			WEIGHTED_SQUARE_SUM = lookup.findVarHandle(DecayingTimingStorage.class, "weightedSquareSum", double.class);
+			LAST_NANO = lookup.findVarHandle(DecayingTimingStorage.class, "lastNano", long.class);
+			SUM = lookup.findVarHandle(DecayingTimingStorage.class, "sum", long.class);
+			COUNT = lookup.findVarHandle(DecayingTimingStorage.class, "count", long.class);
+			SAMPLE_COUNT = lookup.findVarHandle(DecayingTimingStorage.class, "sampleCount", long.class);
+			MIN = lookup.findVarHandle(DecayingTimingStorage.class, "min", long.class);
+			MAX = lookup.findVarHandle(DecayingTimingStorage.class, "max", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	DecayingTimingStorage(String id) {
+		super(id);
+	}
+	
+	
+	
+	/**
+	 * Gets the count of measurements associated with this ID which took place since the last reset.
+	 * If the ID is sampled (see {@link TimingKey#setSampleRate(int)}), then this is an estimate.
+	 *
+	 * @return the count of measurements linked to this ID
+	 */
+	public long getRecordCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the count of measurements since the last reset which were actually measured.
+	 * This is the same as {@link #getRecordCount()}, unless the ID is sampled.
+	 *
+	 * @return the count of measured samples linked to this ID
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+	
+	/**
+	 * Gets the sum of all measured elapsed times since the last reset in nanoseconds.
+	 * If the ID is sampled, then this is an estimate.
+	 *
+	 * @return the sum of delta times
+	 */
+	public long getNanosSum() {
+		return sum;
+	}
+	
+	/**
+	 * Gets the lowest measured elapsed time since the last reset in nanoseconds.
+	 *
+	 * @return the lowest delta time or -1, if there were no measurements
+	 */
+	public long getMinNanos() {
+		return count == 0 ? -1 : min;
+	}
+	
+	/**
+	 * Gets the highest measured elapsed time since the last reset in nanoseconds.
+	 *
+	 * @return the highest delta time or -1, if there were no measurements
+	 */
+	public long getMaxNanos() {
+		return count == 0 ? -1 : max;
+	}
+	
+	/**
+	 * Gets the exponentially decaying mean average of the measured elapsed times in nanoseconds.
+	 *
+	 * @return the decaying mean of delta times or -1, if there were no measurements
+	 */
+	public double getDecayingMeanNanos() {
+		return weight == 0 ? -1 : weightedSum / weight;
+	}
+	
+	/**
+	 * Gets the exponentially decaying standard deviation of the measured elapsed times in nanoseconds.
+	 *
+	 * @return the decaying standard deviation of delta times or -1, if there were no measurements
+	 */
+	public double getDecayingStandardDeviationNanos() {
+		if (weight == 0) {
+			return -1;
+		}
+		
+		double mean = weightedSum / weight;
+		return Math.sqrt(Math.max(0, weightedSquareSum / weight - mean * mean));
+	}
+	
+	/**
+	 * Gets the sum of the current weights of the measurements:
+	 * the count of measurements, where each measurement is weighted by its age.
+	 *
+	 * @return the decayed count of measurements
+	 */
+	public double getDecayingRecordCount() {
+		return weight * getDecayFactor(System.nanoTime() - lastNano);
+	}
+	
+	/**
+	 * Gets the exponentially decaying rate of the measurements:
+	 * the decayed count of measurements divided by the mean lifetime of a measurement's weight.
+	 * At a constant rate this converges to the actual count of measurements per second.
+	 *
+	 * @return the decaying count of measurements per second
+	 */
+	public double getDecayingRatePerSecond() {
+		return getDecayingRecordCount() * DECAY_PER_NANO * 1000000000d;
+	}
+	
+	
+	
+	@Override
+	void addRecord(long nanos, int sampleRate) {
+		//single writer: plain reads, release writes so that concurrent merges see complete values
+		long now = System.nanoTime();
+		double factor = getDecayFactor(now - lastNano);
+		WEIGHT.setRelease(this, weight * factor + sampleRate);
+		WEIGHTED_SUM.setRelease(this, weightedSum * factor + (double) nanos * sampleRate);
+		WEIGHTED_SQUARE_SUM.setRelease(this, weightedSquareSum * factor + (double) nanos * nanos * sampleRate);
+		LAST_NANO.setRelease(this, now);
+		SUM.setRelease(this, sum + nanos * sampleRate);
+		COUNT.setRelease(this, count + sampleRate);
+		SAMPLE_COUNT.setRelease(this, sampleCount + 1);
+		MIN.setRelease(this, Math.min(min, nanos));
+		MAX.setRelease(this, Math.max(max, nanos));
+	}
+	
+	@Override
+	void merge(TimingStorage other) {
+		double otherWeight = (double) WEIGHT.getAcquire(other);
+		double otherSum = (double) WEIGHTED_SUM.getAcquire(other);
+		double otherSquareSum = (double) WEIGHTED_SQUARE_SUM.getAcquire(other);
+		long otherLastNano = (long) LAST_NANO.getAcquire(other);
+		if (weight == 0) {
+			weight = otherWeight;
+			weightedSum = otherSum;
+			weightedSquareSum = otherSquareSum;
+			lastNano = otherLastNano;
+		} else if (otherWeight != 0) {
+			//bring both sides to the same point in time, then sum them
+			long now = Math.max(lastNano, otherLastNano);
+			double factor = getDecayFactor(now - lastNano);
+			double otherFactor = getDecayFactor(now - otherLastNano);
+			weight = weight * factor + otherWeight * otherFactor;
+			weightedSum = weightedSum * factor + otherSum * otherFactor;
+			weightedSquareSum = weightedSquareSum * factor + otherSquareSum * otherFactor;
+			lastNano = now;
+		}
+		
+		sum += (long) SUM.getAcquire(other);
+		count += (long) COUNT.getAcquire(other);
+		sampleCount += (long) SAMPLE_COUNT.getAcquire(other);
+		min = Math.min(min, (long) MIN.getAcquire(other));
+		max = Math.max(max, (long) MAX.getAcquire(other));
+	}
+	
+	@Override
+	void carryOver(TimingStorage previous) {
+		DecayingTimingStorage storage = (DecayingTimingStorage) previous;
+		weight = storage.weight;
+		weightedSum = storage.weightedSum;
+		weightedSquareSum = storage.weightedSquareSum;
+		lastNano = storage.lastNano;
+	}
+	
+	@Override
+	TimingSnapshot toSnapshot(long startTimestamp, long timestamp) {
+		return new TimingSnapshot(startTimestamp, timestamp, getId(), count, sampleCount, sum, min, -1, -1, -1, -1, max,
+				Math.round(getDecayingMeanNanos()), Math.round(getDecayingStandardDeviationNanos()),
+				weight == 0 ? -1 : getDecayingRatePerSecond());
+	}
+	
+	
+	
+	private static double getDecayFactor(long elapsedNanos) {
+		return elapsedNanos <= 0 ? 1 : Math.exp(-elapsedNanos * DECAY_PER_NANO);
+	}
+	
+	
+	
+	@Override
+	public String toString() {
+		return "Timing region: " + getId() + System.lineSeparator()
+				+ " - Count:          " + count + (count == sampleCount ? "" : " (" + sampleCount + " samples)")
+				+ System.lineSeparator()
+				+ " - Min:            " + formatMillis(getMinNanos()) + System.lineSeparator()
+				+ " - Max:            " + formatMillis(getMaxNanos()) + System.lineSeparator()
+				+ " - Decaying mean:  " + formatMillis(getDecayingMeanNanos()) + System.lineSeparator()
+				+ " - Decaying stdev: " + formatMillis(getDecayingStandardDeviationNanos());
+	}
+	
+	private static String formatMillis(double nanos) {
+		return String.format("%.3f ms", nanos / 1000000d);
+	}
+}
@@ -0,0 +1,213 @@
+package hu.trigary.tribukkit.timing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@link TimingStorage} implementation which has an O(1) space complexity,
+ * but unlike {@link CompactTimingStorage} it has nanosecond resolution and it is able to calculate percentiles.
+ * <br><br>
+ * The measurements are counted in logarithmic buckets:
+ * each power of two range is split into 32 equal sized buckets,
+ * therefore the percentiles have a relative error of at most about 3%.
+ * Values below 32 nanoseconds are stored exactly,
+ * values above about 68 seconds are counted in the last bucket.
+ * The sum, min and max values are always exact.
+ */
+public class HistogramTimingStorage extends TimingStorage {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 35;
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+	private static final VarHandle BUCKETS = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final VarHandle SUM;
+	private static final VarHandle COUNT;
+	private static final VarHandle SAMPLE_COUNT;
+	private static final VarHandle MIN;
+	private static final VarHandle MAX;
+	private final long[] buckets = new long[BUCKET_COUNT];
+	private long sum;
+	private long count;
+	private long sampleCount;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			SUM = lookup.findVarHandle(HistogramTimingStorage.class, "sum", long.class);
+			COUNT = lookup.findVarHandle(HistogramTimingStorage.class, "count", long.class);
+			SAMPLE_COUNT = lookup.findVarHandle(HistogramTimingStorage.class, "sampleCount", long.class);
+			MIN = lookup.findVarHandle(HistogramTimingStorage.class, "min", long.class);
+			MAX = lookup.findVarHandle(HistogramTimingStorage.class, "max", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	HistogramTimingStorage(String id) {
+		super(id);
+	}
+	
+	
+	
+	/**
+	 * Gets the count of measurements associated with this ID which took place.
+	 * If the ID is sampled (see {@link TimingKey#setSampleRate(int)}), then this is an estimate.
+	 *
+	 * @return the count of measurements linked to this ID
+	 */
+	public long getRecordCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the count of measurements which were actually measured.
+	 * This is the same as {@link #getRecordCount()}, unless the ID is sampled.
+	 *
+	 * @return the count of measured samples linked to this ID
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+	
+	/**
+	 * Gets the sum of all measured elapsed times in nanoseconds.
+	 * If the ID is sampled, then this is an estimate.
+	 *
+	 * @return the sum of delta times
+	 */
+	public long getNanosSum() {
+		return sum;
+	}
+	
+	/**
+	 * Gets the mean average of all measured elapsed times in nanoseconds.
+	 *
+	 * @return the mean of delta times or -1, if there were no measurements
+	 */
+	public long getMeanNanos() {
+		return count == 0 ? -1 : Math.round((double) sum / count);
+	}
+	
+	/**
+	 * Gets the lowest measured elapsed time in nanoseconds.
+	 *
+	 * @return the lowest delta time or -1, if there were no measurements
+	 */
+	public long getMinNanos() {
+		return count == 0 ? -1 : min;
+	}
+	
+	/**
+	 * Gets the highest measured elapsed time in nanoseconds.
+	 *
+	 * @return the highest delta time or -1, if there were no measurements
+	 */
+	public long getMaxNanos() {
+		return count == 0 ? -1 : max;
+	}
+	
+	/**
+	 * Gets the specified percentile of all measured elapsed times in nanoseconds.
+	 * The time complexity of this method does not depend on the count of measurements.
+	 *
+	 * @param percentile the percentile to get, in the range of [0; 100], eg. 99.9
+	 * @return the approximate percentile of delta times or -1, if there were no measurements
+	 */
+	public long getPercentileNanos(double percentile) {
+		if (count == 0) {
+			return -1;
+		}
+		
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets[i];
+			if (seen >= rank) {
+				long value = getBucketLowerBound(i) + getBucketWidth(i) / 2;
+				return Math.min(max, Math.max(min, value));
+			}
+		}
+		return max;
+	}
+	
+	
+	
+	@Override
+	void addRecord(long nanos, int sampleRate) {
+		//single writer: plain reads, release writes so that concurrent merges see complete values
+		int index = getBucketIndex(nanos);
+		BUCKETS.setRelease(buckets, index, buckets[index] + sampleRate);
+		SUM.setRelease(this, sum + nanos * sampleRate);
+		COUNT.setRelease(this, count + sampleRate);
+		SAMPLE_COUNT.setRelease(this, sampleCount + 1);
+		MIN.setRelease(this, Math.min(min, nanos));
+		MAX.setRelease(this, Math.max(max, nanos));
+	}
+	
+	@Override
+	void merge(TimingStorage other) {
+		long[] otherBuckets = ((HistogramTimingStorage) other).buckets;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets[i] += (long) BUCKETS.getAcquire(otherBuckets, i);
+		}
+		sum += (long) SUM.getAcquire(other);
+		count += (long) COUNT.getAcquire(other);
+		sampleCount += (long) SAMPLE_COUNT.getAcquire(other);
+		min = Math.min(min, (long) MIN.getAcquire(other));
+		max = Math.max(max, (long) MAX.getAcquire(other));
+	}
+	
+	@Override
+	TimingSnapshot toSnapshot(long startTimestamp, long timestamp) {
+		return new TimingSnapshot(startTimestamp, timestamp, getId(), count, sampleCount, sum, min, getPercentileNanos(50),
+				getPercentileNanos(90), getPercentileNanos(99), getPercentileNanos(99.9), max);
+	}
+	
+	
+	
+	private static int getBucketIndex(long nanos) {
+		if (nanos < SUB_BUCKET_COUNT) {
+			return nanos < 0 ? 0 : (int) nanos;
+		}
+		
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+		int subBucket = (int) (Math.min(nanos >>> (exponent - SUB_BUCKET_BITS), 2 * SUB_BUCKET_COUNT - 1)
+				- SUB_BUCKET_COUNT);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+	
+	private static long getBucketLowerBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		return (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+	}
+	
+	private static long getBucketWidth(int index) {
+		return index < SUB_BUCKET_COUNT ? 1 : 1L << (index / SUB_BUCKET_COUNT - 1);
+	}
+	
+	
+	
+	@Override
+	public String toString() {
+		return "Timing region: " + getId() + System.lineSeparator()
+				+ " - Count: " + count + (count == sampleCount ? "" : " (" + sampleCount + " samples)")
+				+ System.lineSeparator()
+				+ " - Mean:  " + formatMillis(getMeanNanos()) + System.lineSeparator()
+				+ " - Min:   " + formatMillis(getMinNanos()) + System.lineSeparator()
+				+ " - P50:   " + formatMillis(getPercentileNanos(50)) + System.lineSeparator()
+				+ " - P90:   " + formatMillis(getPercentileNanos(90)) + System.lineSeparator()
+				+ " - P99:   " + formatMillis(getPercentileNanos(99)) + System.lineSeparator()
+				+ " - P99.9: " + formatMillis(getPercentileNanos(99.9)) + System.lineSeparator()
+				+ " - Max:   " + formatMillis(getMaxNanos());
+	}
+	
+	private static String formatMillis(long nanos) {
+		return String.format("%.3f ms", nanos / 1000000d);
+	}
+}
@@ -0,0 +1,92 @@
+package hu.trigary.tribukkit.timing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A node of a per-thread call tree, see {@link TimingRecorder}.
+ * Only the owner thread writes the nodes, other threads may only read them
+ * (via {@link #mergeInto(TimingCallTree)}), similarly to {@link TimingStorage}.
+ */
+final class TimingCallNode {
+	private static final TimingCallNode[] NO_CHILDREN = new TimingCallNode[0];
+	private static final VarHandle CHILDREN;
+	private static final VarHandle COUNT;
+	private static final VarHandle TOTAL_NANOS;
+	private static final VarHandle SELF_NANOS;
+	private final TimingKey key;
+	private TimingCallNode[] children = NO_CHILDREN;
+	private long count;
+	private long totalNanos;
+	private long selfNanos;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			CHILDREN = lookup.findVarHandle(TimingCallNode.class, "children", TimingCallNode[].class);
+			COUNT = lookup.findVarHandle(TimingCallNode.class, "count", long.class);
+			TOTAL_NANOS = lookup.findVarHandle(TimingCallNode.class, "totalNanos", long.class);
+			SELF_NANOS = lookup.findVarHandle(TimingCallNode.class, "selfNanos", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	TimingCallNode(TimingKey key) {
+		this.key = key;
+	}
+	
+	
+	
+	/**
+	 * Gets the child node with the specified key, creating it if it doesn't exist yet.
+	 * Must only be called from the owner thread.
+	 *
+	 * @param childKey the key of the child
+	 * @return the child node
+	 */
+	TimingCallNode getOrCreateChild(TimingKey childKey) {
+		TimingCallNode[] array = children;
+		for (TimingCallNode child : array) {
+			if (child.key == childKey) {
+				return child;
+			}
+		}
+		
+		TimingCallNode child = new TimingCallNode(childKey);
+		TimingCallNode[] copy = new TimingCallNode[array.length + 1];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		copy[array.length] = child;
+		CHILDREN.setRelease(this, copy);
+		return child;
+	}
+	
+	/**
+	 * Records a measurement, which might represent multiple sampled calls.
+	 * Must only be called from the owner thread.
+	 *
+	 * @param count the count of calls the measurement represents
+	 * @param totalNanos the elapsed time in nanoseconds
+	 * @param selfNanos the elapsed time excluding the time spent in child regions in nanoseconds
+	 */
+	void addRecord(int count, long totalNanos, long selfNanos) {
+		COUNT.setRelease(this, this.count + count);
+		TOTAL_NANOS.setRelease(this, this.totalNanos + totalNanos);
+		SELF_NANOS.setRelease(this, this.selfNanos + selfNanos);
+	}
+	
+	/**
+	 * Adds the data of this node and all of its descendants to the specified tree.
+	 * The specified tree must have the same ID as this node's key.
+	 * This method may be called from any thread.
+	 *
+	 * @param target the tree to add the data to
+	 */
+	void mergeInto(TimingCallTree target) {
+		target.add((long) COUNT.getAcquire(this), (long) TOTAL_NANOS.getAcquire(this),
+				(long) SELF_NANOS.getAcquire(this));
+		for (TimingCallNode child : (TimingCallNode[]) CHILDREN.getAcquire(this)) {
+			child.mergeInto(target.getOrCreateChild(child.key.getId()));
+		}
+	}
+}
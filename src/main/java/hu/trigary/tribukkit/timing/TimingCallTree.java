@@ -0,0 +1,177 @@
+package hu.trigary.tribukkit.timing;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregated tree of nested {@link TimingRegion} instances:
+ * each node represents a region ID reached through a specific path of parent regions.
+ * Instances are snapshots, they are not updated by later measurements.
+ * The root node has no ID and it represents the top level.
+ */
+public class TimingCallTree {
+	private final String id;
+	private final Map<String, TimingCallTree> children = new LinkedHashMap<>();
+	private long callCount;
+	private long totalNanos;
+	private long selfNanos;
+	
+	TimingCallTree(@Nullable String id) {
+		this.id = id;
+	}
+	
+	
+	
+	/**
+	 * Gets the ID of the regions this node represents.
+	 *
+	 * @return the region ID or null, if this is the root node
+	 */
+	@Nullable
+	@Contract(pure = true)
+	public String getId() {
+		return id;
+	}
+	
+	/**
+	 * Gets how many times regions were closed at this path.
+	 *
+	 * @return the count of measurements
+	 */
+	@Contract(pure = true)
+	public long getCallCount() {
+		return callCount;
+	}
+	
+	/**
+	 * Gets the sum of all measured elapsed times at this path, including the time spent in child regions.
+	 * For the root node this is the sum of the children's total times.
+	 *
+	 * @return the total time in nanoseconds
+	 */
+	@Contract(pure = true)
+	public long getTotalNanos() {
+		return id == null ? children.values().stream().mapToLong(TimingCallTree::getTotalNanos).sum() : totalNanos;
+	}
+	
+	/**
+	 * Gets the sum of all measured elapsed times at this path, excluding the time spent in child regions.
+	 *
+	 * @return the self time in nanoseconds
+	 */
+	@Contract(pure = true)
+	public long getSelfNanos() {
+		return selfNanos;
+	}
+	
+	/**
+	 * Gets the child nodes of this node.
+	 *
+	 * @return the unmodifiable children
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public Collection<TimingCallTree> getChildren() {
+		return Collections.unmodifiableCollection(children.values());
+	}
+	
+	
+	
+	/**
+	 * Formats this tree into the "folded stacks" format used by flame graph tools:
+	 * each line contains the semicolon separated path and then the self time in microseconds.
+	 *
+	 * @return the folded stacks, one path per line
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public String toFoldedStacks() {
+		StringBuilder builder = new StringBuilder();
+		for (TimingCallTree child : children.values()) {
+			child.appendFolded(builder, child.id);
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Formats this tree into an indented, human readable text.
+	 * Children are ordered by their total time, descending.
+	 *
+	 * @return the nicely formatted tree
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("Timing call tree:");
+		for (TimingCallTree child : getSortedChildren()) {
+			child.appendIndented(builder, 1);
+		}
+		return builder.toString();
+	}
+	
+	
+	
+	void add(long count, long total, long self) {
+		callCount += count;
+		totalNanos += total;
+		selfNanos += self;
+	}
+	
+	TimingCallTree getOrCreateChild(String childId) {
+		return children.computeIfAbsent(childId, TimingCallTree::new);
+	}
+	
+	void merge(TimingCallTree other) {
+		add(other.callCount, other.totalNanos, other.selfNanos);
+		other.children.forEach((childId, child) -> getOrCreateChild(childId).merge(child));
+	}
+	
+	void subtract(TimingCallTree other) {
+		add(-other.callCount, -other.totalNanos, -other.selfNanos);
+		other.children.forEach((childId, otherChild) -> {
+			TimingCallTree child = children.get(childId);
+			if (child != null) {
+				child.subtract(otherChild);
+				if (child.callCount == 0 && child.children.isEmpty()) {
+					children.remove(childId);
+				}
+			}
+		});
+	}
+	
+	private List<TimingCallTree> getSortedChildren() {
+		List<TimingCallTree> result = new ArrayList<>(children.values());
+		result.sort(Comparator.comparingLong(TimingCallTree::getTotalNanos).reversed());
+		return result;
+	}
+	
+	private void appendIndented(StringBuilder builder, int depth) {
+		builder.append(System.lineSeparator());
+		for (int i = 0; i < depth; i++) {
+			builder.append("  ");
+		}
+		builder.append("- ").append(id).append(": total ").append(TimingTickWindow.formatMillis(totalNanos))
+				.append(", self ").append(TimingTickWindow.formatMillis(selfNanos))
+				.append(", calls ").append(callCount);
+		for (TimingCallTree child : getSortedChildren()) {
+			child.appendIndented(builder, depth + 1);
+		}
+	}
+	
+	private void appendFolded(StringBuilder builder, String path) {
+		if (selfNanos / 1000 > 0) {
+			builder.append(path).append(' ').append(selfNanos / 1000).append(System.lineSeparator());
+		}
+		for (TimingCallTree child : children.values()) {
+			child.appendFolded(builder, path + ';' + child.id);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package hu.trigary.tribukkit.timing;
+
+import org.apache.commons.lang.Validate;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An interned timing region ID, acquired via {@link TimingManager#key(String)}.
+ * Opening regions via {@link TimingRegion#of(TimingKey)} is cheaper than via {@link TimingRegion#of(String)},
+ * since the ID doesn't have to be looked up: the storages are indexed directly.
+ * Instances are usually stored in static final fields.
+ * <br><br>
+ * Regions on ultra-hot paths can be sampled via {@link #setSampleRate(int)}:
+ * only every N-th region opened on each thread is measured,
+ * the counts and times of the measured ones are scaled up by N.
+ * Regions nested inside a sampled region should use the same sample rate,
+ * otherwise the self times in the call tree become inaccurate.
+ */
+public final class TimingKey {
+	private final String id;
+	private final int index;
+	private volatile int sampleRate = 1;
+	
+	TimingKey(String id, int index) {
+		this.id = id;
+		this.index = index;
+	}
+	
+	
+	
+	/**
+	 * Gets the ID this key represents.
+	 *
+	 * @return the associated ID
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public String getId() {
+		return id;
+	}
+	
+	/**
+	 * Gets how many regions with this key are opened for each one that is measured.
+	 *
+	 * @return the sample rate, 1 if all regions are measured
+	 */
+	@Contract(pure = true)
+	public int getSampleRate() {
+		return sampleRate;
+	}
+	
+	/**
+	 * Sets how many regions with this key should be opened for each one that is measured.
+	 * The counter is per-thread, each thread measures its first region, then every N-th one.
+	 * The storages report estimated counts and times (the measured values multiplied by the sample rate),
+	 * the count of actually measured regions is also available, eg. {@link TimingSnapshot#getSampleCount()}.
+	 *
+	 * @param sampleRate the sample rate, 1 to measure all regions
+	 */
+	public void setSampleRate(int sampleRate) {
+		Validate.isTrue(sampleRate > 0, "The sample rate must be positive");
+		this.sampleRate = sampleRate;
+	}
+	
+	int getIndex() {
+		return index;
+	}
+	
+	@Override
+	public String toString() {
+		return id;
+	}
+}
@@ -4,9 +4,16 @@ import hu.trigary.tribukkit.TriJavaPlugin;
 import org.apache.commons.lang.Validate;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -15,10 +22,23 @@ import java.util.stream.Collectors;
  * The timing results (generated via {@link TimingRegion}) can be obtained through this class.
  * {@link #enable(boolean)} must be called before any other method.
  * This class is thread safe.
+ * <br><br>
+ * Measurements are recorded into per-thread storages without any locking,
+ * these are only merged when the data is accessed (eg. via {@link #printAllData()}).
  */
 public class TimingManager {
-	private static Map<String, TimingStorage> storageMap;
-	private static Function<String, TimingStorage> storageConstructor;
+	private static final ThreadLocal<TimingRecorder> RECORDER = ThreadLocal.withInitial(TimingManager::createRecorder);
+	private static final Queue<TimingRecorder> recorders = new ConcurrentLinkedQueue<>();
+	private static final Map<String, TimingKey> keyMap = new ConcurrentHashMap<>();
+	private static final AtomicInteger keyCounter = new AtomicInteger();
+	private static Map<String, TimingStorage> retiredStorageMap;
+	private static TimingCallTree retiredCallTree;
+	private static volatile Function<String, TimingStorage> storageConstructor;
+	private static volatile TimingTickWindow tickWindow;
+	private static TimingCallTree callTreeBaseline;
+	static volatile int resetEpoch;
+	private static long lastTickNano;
+	private static long resetTimestamp;
 	
 	/**
 	 * Enables timing measurements and the use of this class.
@@ -29,11 +49,43 @@ public class TimingManager {
 	 *
 	 * @param verbose whether to use {@link VerboseTimingStorage} or {@link CompactTimingStorage}
 	 */
-	public static synchronized void enable(boolean verbose) {
-		Validate.isTrue(storageMap == null, "TimingManager is already enabled");
-		storageMap = new HashMap<>();
-		storageConstructor = verbose ? VerboseTimingStorage::new : CompactTimingStorage::new;
-		TimingRegion.cache = new ArrayDeque<>();
+	public static void enable(boolean verbose) {
+		enable(verbose ? TimingStorageType.VERBOSE : TimingStorageType.COMPACT);
+	}
+	
+	/**
+	 * Enables timing measurements and the use of this class.
+	 * Must be called before any other method.
+	 * Can only be invoked once.
+	 * To enable this class and also call {@link #printAllData()} the
+	 * {@link TriJavaPlugin#enableScheduledTimingReports(TimingStorageType, int)} method can also be used.
+	 *
+	 * @param storageType the type of {@link TimingStorage} to use
+	 */
+	public static synchronized void enable(@NotNull TimingStorageType storageType) {
+		Validate.isTrue(storageConstructor == null, "TimingManager is already enabled");
+		retiredStorageMap = new HashMap<>();
+		retiredCallTree = new TimingCallTree(null);
+		callTreeBaseline = new TimingCallTree(null);
+		storageConstructor = storageType.getConstructor();
+		resetTimestamp = System.currentTimeMillis();
+		TimingRegion.enabled = true;
+	}
+	
+	
+	
+	/**
+	 * Gets the interned key of the specified ID, creating it if it doesn't exist yet.
+	 * The same instance is returned for equal IDs.
+	 * Can be called before this class is enabled, eg. to initialize static final fields.
+	 *
+	 * @param id the ID to get the key of
+	 * @return the key of the ID
+	 */
+	@NotNull
+	public static TimingKey key(@NotNull String id) {
+		TimingKey key = keyMap.get(id);
+		return key != null ? key : createKey(id);
 	}
 	
 	
@@ -55,14 +107,41 @@ public class TimingManager {
 	public static synchronized void printAllData() {
 		if (assertEnabled()) {
 			TriJavaPlugin.getInstance().getLogger().info("Printing all timing region data..."
-					+ storageMap.values().stream().map(TimingStorage::toString)
+					+ collectStorages().values().stream().map(TimingStorage::toString)
 					.collect(Collectors.joining(System.lineSeparator())));
 		}
 	}
 	
+	/**
+	 * Prints all measured data, then resets all data, see {@link #resetAll()}.
+	 * Periodically calling this method results in reports containing the data of the last interval.
+	 */
+	public static synchronized void printAllDataAndReset() {
+		if (assertEnabled()) {
+			TriJavaPlugin.getInstance().getLogger().info("Printing all timing region data since the last reset..."
+					+ resetStorages().values().stream().map(TimingStorage::toString)
+					.collect(Collectors.joining(System.lineSeparator())));
+			resetCallTree();
+		}
+	}
+	
+	/**
+	 * Discards all measured data: the storages, the call tree and the retained data of finished threads.
+	 * The tick window is not affected.
+	 * Measurements which are being recorded on other threads while this method
+	 * is running might be counted towards either side of the reset or might be lost.
+	 */
+	public static synchronized void resetAll() {
+		if (assertEnabled()) {
+			resetStorages();
+			resetCallTree();
+		}
+	}
+	
 	/**
 	 * Get the measured data associated with the ID.
 	 * A callback is used for thread-safety reasons, therefore the reference should not be leaked.
+	 * The specified instance is a snapshot: it doesn't get updated by later measurements.
 	 *
 	 * @param id the ID whose data to get
 	 * @param handler the callback which handles the data
@@ -75,19 +154,266 @@ public class TimingManager {
 	
 	
 	
-	static synchronized void addRecord(String id, long startNano) {
-		getStorage(id).addRecord((int) ((System.nanoTime() - startNano) / 1000000));
+	/**
+	 * Creates an immutable, structured view of all measured data.
+	 * The returned snapshots are ordered by their IDs.
+	 * {@link TimingSnapshotWriter} can be used to save these snapshots to disk.
+	 *
+	 * @return the snapshots of all storages or an empty list, if this class is not enabled
+	 */
+	@NotNull
+	public static synchronized List<TimingSnapshot> snapshot() {
+		if (!assertEnabled()) {
+			return Collections.emptyList();
+		}
+		
+		return toSnapshots(collectStorages(), resetTimestamp, System.currentTimeMillis());
+	}
+	
+	/**
+	 * Creates an immutable, structured view of all measured data, then resets all data, see {@link #resetAll()}.
+	 * The snapshots and the reset are based on the same data: no measurement is included both
+	 * in the returned snapshots and in the data after the reset.
+	 * Measurements which are being recorded on other threads while this method
+	 * is running might be counted towards either side of the reset or might be lost.
+	 * The returned snapshots are ordered by their IDs.
+	 *
+	 * @return the snapshots of all storages or an empty list, if this class is not enabled
+	 */
+	@NotNull
+	public static synchronized List<TimingSnapshot> snapshotAndReset() {
+		if (!assertEnabled()) {
+			return Collections.emptyList();
+		}
+		
+		long startTimestamp = resetTimestamp;
+		List<TimingSnapshot> result = toSnapshots(resetStorages(), startTimestamp, resetTimestamp);
+		resetCallTree();
+		return result;
+	}
+	
+	
+	
+	/**
+	 * Prints the call tree built from the nested timing regions.
+	 * A region is nested if it is opened on the same thread while another region is open.
+	 */
+	public static synchronized void printCallTree() {
+		if (assertEnabled()) {
+			TriJavaPlugin.getInstance().getLogger().info(collectCallTree().toString());
+		}
+	}
+	
+	/**
+	 * Get the call tree built from the nested timing regions.
+	 * A region is nested if it is opened on the same thread while another region is open.
+	 * The specified instance is a snapshot: it doesn't get updated by later measurements.
+	 * {@link TimingCallTree#toFoldedStacks()} can be used to create flame graphs.
+	 *
+	 * @param handler the callback which handles the data
+	 */
+	public static synchronized void handleCallTree(@NotNull Consumer<TimingCallTree> handler) {
+		if (assertEnabled()) {
+			handler.accept(collectCallTree());
+		}
+	}
+	
+	
+	
+	/**
+	 * Enables the collection of per-tick timing data, which can then be accessed
+	 * through {@link #printTickReport()} and {@link #handleTickWindow(Consumer)}.
+	 * Only the measurements made on the main thread are considered.
+	 * {@link #handleTick()} must be called once every tick for this to work,
+	 * the {@link TriJavaPlugin#enableTickTimingWindow(int, double)} method does this automatically.
+	 * Can only be invoked once.
+	 *
+	 * @param windowTicks the count of most recent ticks to keep the data of, eg. 1200
+	 * @param thresholdMillis the sum of measured times in a tick above which the tick gets flagged
+	 */
+	public static synchronized void enableTickWindow(int windowTicks, double thresholdMillis) {
+		Validate.isTrue(windowTicks > 0, "The window size must be positive");
+		Validate.isTrue(tickWindow == null, "The tick window is already enabled");
+		if (assertEnabled()) {
+			tickWindow = new TimingTickWindow(windowTicks, Math.round(thresholdMillis * 1000000));
+		}
+	}
+	
+	/**
+	 * Closes the current tick: the measurements made since the last invocation
+	 * of this method are added to the tick window as a new sample.
+	 * If the sum of these measurements is over the configured threshold, a warning is logged.
+	 * Must be called from the main thread, once every tick.
+	 */
+	public static void handleTick() {
+		TimingTickWindow window = tickWindow;
+		if (window == null) {
+			return;
+		}
+		
+		TimingRecorder recorder = RECORDER.get();
+		long now = System.nanoTime();
+		if (lastTickNano == 0) {
+			recorder.enableTickTracking();
+		} else {
+			TimingTickSample sample = recorder.finishTick(now - lastTickNano, window.getThresholdNanos());
+			window.add(sample);
+			if (sample.isOverThreshold()) {
+				TriJavaPlugin.getInstance().getLogger().warning("Timing regions exceeded the tick threshold: " + sample);
+			}
+		}
+		lastTickNano = now;
+	}
+	
+	/**
+	 * Prints the summary of the per-tick data:
+	 * the share of the tick budget per region and the worst lag spike.
+	 */
+	public static void printTickReport() {
+		if (assertTickWindowEnabled()) {
+			TriJavaPlugin.getInstance().getLogger().info(tickWindow.toString());
+		}
+	}
+	
+	/**
+	 * Get the per-tick timing data.
+	 * The window is continuously updated, it is locked while the callback is running.
+	 *
+	 * @param handler the callback which handles the data
+	 */
+	public static void handleTickWindow(@NotNull Consumer<TimingTickWindow> handler) {
+		if (assertTickWindowEnabled()) {
+			TimingTickWindow window = tickWindow;
+			//noinspection SynchronizationOnLocalVariableOrMethodParameter
+			synchronized (window) {
+				handler.accept(window);
+			}
+		}
+	}
+	
+	
+	
+	static TimingRegion startRecord(TimingKey key) {
+		return RECORDER.get().startRecord(key);
+	}
+	
+	private static TimingKey createKey(String id) {
+		return keyMap.computeIfAbsent(id, ignored -> new TimingKey(id, keyCounter.getAndIncrement()));
+	}
+	
+	private static TimingRecorder createRecorder() {
+		TimingRecorder recorder = new TimingRecorder(storageConstructor, Thread.currentThread());
+		recorders.add(recorder);
+		return recorder;
 	}
 	
 	private static boolean assertEnabled() {
-		if (storageMap != null) {
+		if (storageConstructor != null) {
 			return true;
 		}
 		TriJavaPlugin.getInstance().getLogger().severe("Attempted to access the TimingManager, but it is not enabled");
 		return false;
 	}
 	
+	private static boolean assertTickWindowEnabled() {
+		if (tickWindow != null) {
+			return true;
+		}
+		TriJavaPlugin.getInstance().getLogger().severe("Attempted to access the tick window, but it is not enabled");
+		return false;
+	}
+	
 	private static TimingStorage getStorage(String id) {
-		return storageMap.computeIfAbsent(id, storageConstructor);
+		TimingStorage storage = collectStorages().get(id);
+		return storage == null ? storageConstructor.apply(id) : storage;
+	}
+	
+	/**
+	 * Merges the data of all recorders into new storage instances.
+	 * The recorders of threads which are no longer alive are merged into
+	 * {@link #retiredStorageMap} and {@link #retiredCallTree} and are removed,
+	 * so that they don't have to be merged again.
+	 * Must only be called while holding the class' lock.
+	 *
+	 * @return the merged storages, mapped by their IDs
+	 */
+	private static Map<String, TimingStorage> collectStorages() {
+		retireDeadRecorders();
+		return collectStorages(resetEpoch);
+	}
+	
+	private static Map<String, TimingStorage> collectStorages(int epoch) {
+		Map<String, TimingStorage> result = new HashMap<>();
+		mergeInto(result, retiredStorageMap.values());
+		for (TimingRecorder recorder : recorders) {
+			mergeInto(result, recorder.getStorages(epoch));
+		}
+		return result;
+	}
+	
+	/**
+	 * Starts a new epoch and merges the data of the previous epoch into new storage instances.
+	 * Recorders switch to new storages lazily, when they notice the epoch change,
+	 * until then their current storages are considered to be part of the previous epoch.
+	 * Must only be called while holding the class' lock.
+	 *
+	 * @return the merged storages of the previous epoch, mapped by their IDs
+	 */
+	private static Map<String, TimingStorage> resetStorages() {
+		int epoch = resetEpoch;
+		resetEpoch = epoch + 1;
+		Map<String, TimingStorage> result = collectStorages(epoch);
+		retiredStorageMap = new HashMap<>();
+		resetTimestamp = System.currentTimeMillis();
+		return result;
+	}
+	
+	private static void resetCallTree() {
+		callTreeBaseline.merge(collectCallTree());
+	}
+	
+	private static List<TimingSnapshot> toSnapshots(Map<String, TimingStorage> storages,
+			long startTimestamp, long timestamp) {
+		return storages.values().stream()
+				.map(storage -> storage.toSnapshot(startTimestamp, timestamp))
+				.sorted(Comparator.comparing(TimingSnapshot::getId))
+				.collect(Collectors.toUnmodifiableList());
+	}
+	
+	/**
+	 * Merges the call trees of all recorders into a new tree.
+	 * The per-thread call trees are never reset, instead the data present
+	 * at the time of the last reset is subtracted from the result.
+	 * Must only be called while holding the class' lock.
+	 *
+	 * @return the merged call tree
+	 */
+	private static TimingCallTree collectCallTree() {
+		retireDeadRecorders();
+		TimingCallTree result = new TimingCallTree(null);
+		result.merge(retiredCallTree);
+		for (TimingRecorder recorder : recorders) {
+			recorder.getRootNode().mergeInto(result);
+		}
+		result.subtract(callTreeBaseline);
+		return result;
+	}
+	
+	private static void retireDeadRecorders() {
+		Iterator<TimingRecorder> iterator = recorders.iterator();
+		while (iterator.hasNext()) {
+			TimingRecorder recorder = iterator.next();
+			if (!recorder.isOwnerAlive()) {
+				mergeInto(retiredStorageMap, recorder.getStorages(resetEpoch));
+				recorder.getRootNode().mergeInto(retiredCallTree);
+				iterator.remove();
+			}
+		}
+	}
+	
+	private static void mergeInto(Map<String, TimingStorage> target, Iterable<TimingStorage> storages) {
+		for (TimingStorage storage : storages) {
+			target.computeIfAbsent(storage.getId(), storageConstructor).merge(storage);
+		}
 	}
 }
@@ -0,0 +1,257 @@
+package hu.trigary.tribukkit.timing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A per-thread set of {@link TimingStorage} instances, indexed by {@link TimingKey}.
+ * Only the owner thread writes the storages, other threads may only read (merge) them,
+ * this way recording never has to wait for any lock.
+ * <br><br>
+ * The recorder of the main thread also sums the elapsed times since the last tick
+ * (see {@link #enableTickTracking()}), this data is only ever accessed from the owner thread.
+ * <br><br>
+ * The currently open regions are tracked in a stack, this is used to build a call tree
+ * whose nodes are also only written by the owner thread.
+ * The {@link TimingRegion} instances are pooled by this stack: each depth has its own instance.
+ * <br><br>
+ * Resets are handled via epochs: each storage belongs to an epoch and when the
+ * owner thread notices that {@link TimingManager#resetEpoch} has changed,
+ * it replaces its storages with new ones, while keeping a reference to the previous ones,
+ * so that the data of the previous epoch can still be read.
+ */
+final class TimingRecorder {
+	private static final VarHandle ENTRIES;
+	private static final VarHandle ENTRY_ELEMENT = MethodHandles.arrayElementVarHandle(Entry[].class);
+	private Entry[] entries = new Entry[16];
+	private final Function<String, TimingStorage> storageConstructor;
+	private final Thread owner;
+	private final TimingCallNode rootNode = new TimingCallNode(null);
+	private TimingCallNode[] nodeStack = new TimingCallNode[16];
+	private long[] childNanosStack = new long[16];
+	private TimingRegion[] regionStack = new TimingRegion[16];
+	private int[] sampleCounters = new int[16];
+	private int depth;
+	private boolean tickTracking;
+	
+	static {
+		try {
+			ENTRIES = MethodHandles.lookup().findVarHandle(TimingRecorder.class, "entries", Entry[].class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	TimingRecorder(Function<String, TimingStorage> storageConstructor, Thread owner) {
+		this.storageConstructor = storageConstructor;
+		this.owner = owner;
+		nodeStack[0] = rootNode;
+	}
+	
+	
+	
+	/**
+	 * Gets whether the thread which owns this instance is still alive.
+	 * If it isn't, then all of its writes are guaranteed to be visible.
+	 *
+	 * @return whether the owner thread is alive
+	 */
+	boolean isOwnerAlive() {
+		return owner.isAlive();
+	}
+	
+	/**
+	 * Gets the storages of this recorder which belong to the specified epoch.
+	 * The specified epoch must either be the current one or the previous one.
+	 * The returned storages must only be read.
+	 *
+	 * @param epoch the epoch whose storages to get
+	 * @return the storages in this recorder
+	 */
+	List<TimingStorage> getStorages(int epoch) {
+		Entry[] array = (Entry[]) ENTRIES.getAcquire(this);
+		List<TimingStorage> result = new ArrayList<>();
+		for (int i = 0; i < array.length; i++) {
+			Entry entry = (Entry) ENTRY_ELEMENT.getAcquire(array, i);
+			if (entry == null) {
+				continue;
+			}
+			
+			if (entry.epoch == epoch) {
+				result.add(entry.storage);
+			} else if (entry.epoch == epoch + 1 && entry.previous != null) {
+				result.add(entry.previous);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Gets the root of this recorder's call tree. The returned node must only be read.
+	 *
+	 * @return the root node of the call tree
+	 */
+	TimingCallNode getRootNode() {
+		return rootNode;
+	}
+	
+	/**
+	 * Marks the start of a measurement: pushes a new frame onto the region stack.
+	 * If the key is sampled and this region should be skipped, then nothing happens.
+	 * Must only be called from the owner thread.
+	 *
+	 * @param key the key of the measurement
+	 * @return the started region, whose frame must be passed to {@link #addRecord(TimingKey, long, int, int)}
+	 * or a no-op region, if this region is skipped due to sampling
+	 */
+	TimingRegion startRecord(TimingKey key) {
+		int sampleRate = key.getSampleRate();
+		if (sampleRate != 1 && skipSample(key.getIndex(), sampleRate)) {
+			return TimingRegion.DISABLED;
+		}
+		
+		TimingCallNode node = nodeStack[depth].getOrCreateChild(key);
+		if (++depth == nodeStack.length) {
+			nodeStack = Arrays.copyOf(nodeStack, depth * 2);
+			childNanosStack = Arrays.copyOf(childNanosStack, depth * 2);
+			regionStack = Arrays.copyOf(regionStack, depth * 2);
+		}
+		nodeStack[depth] = node;
+		childNanosStack[depth] = 0;
+		
+		TimingRegion region = regionStack[depth];
+		if (region == null) {
+			region = new TimingRegion(this);
+			regionStack[depth] = region;
+		}
+		region.start(key, depth, sampleRate);
+		return region;
+	}
+	
+	/**
+	 * Records a measurement and pops its frame from the region stack.
+	 * Frames above the specified one are discarded: those regions were never closed.
+	 * Must only be called from the owner thread.
+	 *
+	 * @param key the key of the measurement
+	 * @param nanos the elapsed time in nanoseconds
+	 * @param frame the stack depth of the region returned by {@link #startRecord(TimingKey)}
+	 * @param sampleRate the sample rate of the key at the time the region was started
+	 */
+	void addRecord(TimingKey key, long nanos, int frame, int sampleRate) {
+		Entry entry = getEntry(key);
+		entry.storage.addRecord(nanos, sampleRate);
+		
+		//sampled measurements are scaled up: they are estimates of all regions with the key
+		long totalNanos = nanos * sampleRate;
+		long selfNanos = totalNanos;
+		if (frame > 0 && frame <= depth) {
+			selfNanos -= childNanosStack[frame];
+			nodeStack[frame].addRecord(sampleRate, totalNanos, selfNanos);
+			depth = frame - 1;
+			childNanosStack[depth] += totalNanos;
+		}
+		
+		if (tickTracking) {
+			entry.tickNanos += selfNanos;
+		}
+	}
+	
+	
+	
+	/**
+	 * Makes this recorder sum the elapsed times (excluding the time spent in child regions) per tick.
+	 * Must only be called from the owner thread.
+	 */
+	void enableTickTracking() {
+		tickTracking = true;
+	}
+	
+	/**
+	 * Creates a sample from the elapsed times summed since the last call and resets the sums.
+	 * Must only be called from the owner thread.
+	 *
+	 * @param durationNanos the duration of the tick which has just ended
+	 * @param thresholdNanos the threshold above which the sample should be flagged
+	 * @return the sample of the tick which has just ended
+	 */
+	TimingTickSample finishTick(long durationNanos, long thresholdNanos) {
+		int count = 0;
+		for (Entry entry : entries) {
+			if (entry != null && entry.tickNanos != 0) {
+				count++;
+			}
+		}
+		
+		String[] ids = new String[count];
+		long[] nanos = new long[count];
+		int index = 0;
+		for (Entry entry : entries) {
+			if (entry != null && entry.tickNanos != 0) {
+				ids[index] = entry.storage.getId();
+				nanos[index++] = entry.tickNanos;
+				entry.tickNanos = 0;
+			}
+		}
+		return new TimingTickSample(durationNanos, thresholdNanos, ids, nanos);
+	}
+	
+	
+	
+	private boolean skipSample(int index, int sampleRate) {
+		if (index >= sampleCounters.length) {
+			sampleCounters = Arrays.copyOf(sampleCounters, Math.max(index + 1, sampleCounters.length * 2));
+		}
+		
+		if (sampleCounters[index] > 0) {
+			sampleCounters[index]--;
+			return true;
+		}
+		sampleCounters[index] = sampleRate - 1;
+		return false;
+	}
+	
+	private Entry getEntry(TimingKey key) {
+		int index = key.getIndex();
+		Entry[] array = entries;
+		if (index >= array.length) {
+			array = Arrays.copyOf(array, Math.max(index + 1, array.length * 2));
+			ENTRIES.setRelease(this, array);
+		}
+		
+		Entry entry = array[index];
+		int epoch = TimingManager.resetEpoch;
+		if (entry == null || entry.epoch != epoch) {
+			TimingStorage storage = storageConstructor.apply(key.getId());
+			if (entry == null) {
+				entry = new Entry(storage, epoch, null);
+			} else {
+				storage.carryOver(entry.storage);
+				long tickNanos = entry.tickNanos;
+				entry = new Entry(storage, epoch, entry.epoch == epoch - 1 ? entry.storage : null);
+				entry.tickNanos = tickNanos;
+			}
+			ENTRY_ELEMENT.setRelease(array, index, entry);
+		}
+		return entry;
+	}
+	
+	
+	
+	private static final class Entry {
+		final TimingStorage storage;
+		final int epoch;
+		final TimingStorage previous;
+		long tickNanos;
+		
+		Entry(TimingStorage storage, int epoch, TimingStorage previous) {
+			this.storage = storage;
+			this.epoch = epoch;
+			this.previous = previous;
+		}
+	}
+}
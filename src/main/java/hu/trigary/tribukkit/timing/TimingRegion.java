@@ -1,49 +1,63 @@
 package hu.trigary.tribukkit.timing;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
-
-import java.util.Deque;
 
 /**
  * A class which measures the elapsed time since it was acquired
  * (using {@link #of(String)}) until it is released (using {@link #close()}).
  * This delta time is then reported to {@link TimingManager}
  * together with the ID specified in {@link #of(String)}.
- * This class can be used on any thread, but it is not thread-safe.
- * Non-null instances of this class can only be acquired when the {@link TimingManager} is enabled.
- * This also means that everything will work normally (no extra steps are needed)
- * when the {@link #close()} method is called by try-with-resources.
+ * This class can be used on any thread, but instances must be
+ * released on the same thread they were acquired on.
+ * Regions opened while another region is open on the same thread are considered
+ * to be nested in that region, see {@link TimingManager#handleCallTree(java.util.function.Consumer)}.
+ * <br><br>
+ * Instances are pooled per thread: acquiring and releasing them does not allocate.
+ * When the {@link TimingManager} is not enabled, a shared instance is returned which does nothing.
+ * This means that call sites look the same regardless of whether timing is enabled,
+ * everything works when the {@link #close()} method is called by try-with-resources:
+ * <pre>{@code
+ * try (TimingRegion ignored = TimingRegion.of("pathfind")) {
+ *     //code to measure
+ * }
+ * }</pre>
  */
 public class TimingRegion implements AutoCloseable {
-	static Deque<TimingRegion> cache;
-	private String id;
+	static final TimingRegion DISABLED = new TimingRegion(null);
+	static volatile boolean enabled;
+	private final TimingRecorder recorder;
+	private TimingKey key;
 	private long startNano;
+	private int frame;
+	private int sampleRate;
 	
-	private TimingRegion() {}
+	TimingRegion(TimingRecorder recorder) {
+		this.recorder = recorder;
+	}
 	
 	/**
-	 * Gets a new or internally cached instance with the specified ID set.
+	 * Gets an internally cached instance with the specified ID set.
 	 * Also marks the current timestamp as the start of the measurement.
 	 *
 	 * @param id the id of action being measured
-	 * @return an instance or null, if {@link TimingManager} is not enabled
+	 * @return an instance which does nothing, if {@link TimingManager} is not enabled
 	 */
-	@Nullable
+	@NotNull
 	public static TimingRegion of(@NotNull String id) {
-		if (cache == null) {
-			return null;
-		}
-		
-		TimingRegion region = cache.poll();
-		if (region == null) {
-			//noinspection resource
-			region = new TimingRegion();
-		}
-		
-		region.id = id;
-		region.startNano = System.nanoTime();
-		return region;
+		return enabled ? TimingManager.startRecord(TimingManager.key(id)) : DISABLED;
+	}
+	
+	/**
+	 * Gets an internally cached instance with the specified key set.
+	 * Also marks the current timestamp as the start of the measurement.
+	 * This method is faster than {@link #of(String)}.
+	 *
+	 * @param key the key of action being measured
+	 * @return an instance which does nothing, if {@link TimingManager} is not enabled
+	 */
+	@NotNull
+	public static TimingRegion of(@NotNull TimingKey key) {
+		return enabled ? TimingManager.startRecord(key) : DISABLED;
 	}
 	
 	/**
@@ -53,7 +67,17 @@ public class TimingRegion implements AutoCloseable {
 	 */
 	@Override
 	public void close() {
-		TimingManager.addRecord(id, startNano);
-		cache.push(this);
+		if (recorder != null) {
+			recorder.addRecord(key, System.nanoTime() - startNano, frame, sampleRate);
+		}
+	}
+	
+	
+	
+	void start(TimingKey key, int frame, int sampleRate) {
+		this.key = key;
+		this.frame = frame;
+		this.sampleRate = sampleRate;
+		startNano = System.nanoTime();
 	}
 }
@@ -0,0 +1,238 @@
+package hu.trigary.tribukkit.timing;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An immutable, structured view of a {@link TimingStorage} at a given point in time,
+ * acquired via {@link TimingManager#snapshot()}.
+ * All durations are in nanoseconds, but their resolution depends on the {@link TimingStorageType} in use.
+ * Values which are not supported by the storage type or which are undefined
+ * (eg. the mean when no measurements took place) are -1.
+ * The decaying values are only supported by {@link TimingStorageType#DECAYING}.
+ * The counts and sums only contain the measurements since the start of the snapshot's window:
+ * the last reset of the data (see {@link TimingManager#resetAll()}), therefore they should be compared
+ * to other snapshots using the duration of the window, eg. as counts per second.
+ */
+public class TimingSnapshot {
+	private final long startTimestamp;
+	private final long timestamp;
+	private final String id;
+	private final long recordCount;
+	private final long sampleCount;
+	private final long totalNanos;
+	private final long minNanos;
+	private final long meanNanos;
+	private final long p50Nanos;
+	private final long p90Nanos;
+	private final long p99Nanos;
+	private final long p999Nanos;
+	private final long maxNanos;
+	private final long decayingMeanNanos;
+	private final long decayingStandardDeviationNanos;
+	private final double decayingRatePerSecond;
+	
+	TimingSnapshot(long startTimestamp, long timestamp, String id, long recordCount, long sampleCount, long totalNanos, long minNanos,
+			long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+		this(startTimestamp, timestamp, id, recordCount, sampleCount, totalNanos, minNanos,
+				p50Nanos, p90Nanos, p99Nanos, p999Nanos, maxNanos, -1, -1, -1);
+	}
+	
+	TimingSnapshot(long startTimestamp, long timestamp, String id, long recordCount, long sampleCount, long totalNanos, long minNanos,
+			long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos,
+			long decayingMeanNanos, long decayingStandardDeviationNanos, double decayingRatePerSecond) {
+		this.startTimestamp = startTimestamp;
+		this.timestamp = timestamp;
+		this.id = id;
+		this.recordCount = recordCount;
+		this.sampleCount = sampleCount;
+		this.totalNanos = totalNanos;
+		this.minNanos = recordCount == 0 ? -1 : minNanos;
+		meanNanos = recordCount == 0 ? -1 : Math.round((double) totalNanos / recordCount);
+		this.p50Nanos = recordCount == 0 ? -1 : p50Nanos;
+		this.p90Nanos = recordCount == 0 ? -1 : p90Nanos;
+		this.p99Nanos = recordCount == 0 ? -1 : p99Nanos;
+		this.p999Nanos = recordCount == 0 ? -1 : p999Nanos;
+		this.maxNanos = recordCount == 0 ? -1 : maxNanos;
+		this.decayingMeanNanos = decayingMeanNanos;
+		this.decayingStandardDeviationNanos = decayingStandardDeviationNanos;
+		this.decayingRatePerSecond = decayingRatePerSecond;
+	}
+	
+	
+	
+	/**
+	 * Gets when the window of this snapshot started:
+	 * when the data was last reset or when {@link TimingManager} was enabled.
+	 *
+	 * @return the start time in milliseconds since the epoch
+	 */
+	@Contract(pure = true)
+	public long getStartTimestamp() {
+		return startTimestamp;
+	}
+	
+	/**
+	 * Gets when this snapshot was taken.
+	 *
+	 * @return the creation time in milliseconds since the epoch
+	 */
+	@Contract(pure = true)
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	/**
+	 * Gets the ID whose data this instance contains.
+	 *
+	 * @return the associated ID
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public String getId() {
+		return id;
+	}
+	
+	/**
+	 * Gets the count of measurements associated with this ID which took place.
+	 * If the ID is sampled (see {@link TimingKey#setSampleRate(int)}), then this is an estimate.
+	 *
+	 * @return the count of measurements linked to this ID
+	 */
+	@Contract(pure = true)
+	public long getRecordCount() {
+		return recordCount;
+	}
+	
+	/**
+	 * Gets the count of measurements which were actually measured.
+	 * This is the same as {@link #getRecordCount()}, unless the ID is sampled.
+	 *
+	 * @return the count of measured samples linked to this ID
+	 */
+	@Contract(pure = true)
+	public long getSampleCount() {
+		return sampleCount;
+	}
+	
+	/**
+	 * Gets the sum of all measured elapsed times.
+	 * If the ID is sampled, then this is an estimate.
+	 *
+	 * @return the sum of delta times in nanoseconds
+	 */
+	@Contract(pure = true)
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+	
+	/**
+	 * Gets the lowest measured elapsed time.
+	 *
+	 * @return the lowest delta time in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getMinNanos() {
+		return minNanos;
+	}
+	
+	/**
+	 * Gets the mean average of all measured elapsed times.
+	 *
+	 * @return the mean of delta times in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getMeanNanos() {
+		return meanNanos;
+	}
+	
+	/**
+	 * Gets the median of all measured elapsed times.
+	 *
+	 * @return the 50th percentile of delta times in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getP50Nanos() {
+		return p50Nanos;
+	}
+	
+	/**
+	 * Gets the 90th percentile of all measured elapsed times.
+	 *
+	 * @return the 90th percentile of delta times in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getP90Nanos() {
+		return p90Nanos;
+	}
+	
+	/**
+	 * Gets the 99th percentile of all measured elapsed times.
+	 *
+	 * @return the 99th percentile of delta times in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getP99Nanos() {
+		return p99Nanos;
+	}
+	
+	/**
+	 * Gets the 99.9th percentile of all measured elapsed times.
+	 *
+	 * @return the 99.9th percentile of delta times in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getP999Nanos() {
+		return p999Nanos;
+	}
+	
+	/**
+	 * Gets the highest measured elapsed time.
+	 *
+	 * @return the highest delta time in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+	
+	/**
+	 * Gets the exponentially decaying mean average of the measured elapsed times,
+	 * see {@link DecayingTimingStorage#getDecayingMeanNanos()}.
+	 *
+	 * @return the decaying mean of delta times in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getDecayingMeanNanos() {
+		return decayingMeanNanos;
+	}
+	
+	/**
+	 * Gets the exponentially decaying standard deviation of the measured elapsed times,
+	 * see {@link DecayingTimingStorage#getDecayingStandardDeviationNanos()}.
+	 *
+	 * @return the decaying standard deviation of delta times in nanoseconds or -1
+	 */
+	@Contract(pure = true)
+	public long getDecayingStandardDeviationNanos() {
+		return decayingStandardDeviationNanos;
+	}
+	
+	/**
+	 * Gets the exponentially decaying rate of the measurements,
+	 * see {@link DecayingTimingStorage#getDecayingRatePerSecond()}.
+	 *
+	 * @return the decaying count of measurements per second or -1
+	 */
+	@Contract(pure = true)
+	public double getDecayingRatePerSecond() {
+		return decayingRatePerSecond;
+	}
+	
+	
+	
+	@Override
+	public String toString() {
+		return "TimingSnapshot{id=" + id + ", count=" + recordCount + ", samples=" + sampleCount + ", total=" + totalNanos + "ns}";
+	}
+}
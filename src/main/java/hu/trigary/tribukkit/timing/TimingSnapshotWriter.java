@@ -0,0 +1,204 @@
+package hu.trigary.tribukkit.timing;
+
+import com.google.common.base.Charsets;
+import com.google.gson.JsonObject;
+import hu.trigary.tribukkit.TriJavaPlugin;
+import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Appends {@link TimingSnapshot} instances to a file, rotating it when it grows too large.
+ * Each snapshot is written as a separate line (row), therefore the output files
+ * can be easily processed by other tools, eg. to compare the performance of different builds.
+ * Each row contains the start and the end of the window its values were measured in,
+ * since the data might be reset between the writes (eg. by {@link TimingManager#printAllDataAndReset()}).
+ * When a file is rotated it is renamed to eg. {@code "timings.1.csv"}, {@code "timings.2.csv"} and so on,
+ * the oldest file being deleted once there are too many of them.
+ * This class is thread safe.
+ */
+public class TimingSnapshotWriter {
+	private final File directory;
+	private final String fileName;
+	private final Format format;
+	private final long maxFileBytes;
+	private final int maxFiles;
+	private final String version;
+	
+	/**
+	 * Creates a new writer with the specified options.
+	 * No files are touched until the first write.
+	 *
+	 * @param directory the directory to write the files to
+	 * @param fileName the name of the files without the extension, eg. "timings"
+	 * @param format the format of the files
+	 * @param maxFileBytes the size of the file above which it gets rotated
+	 * @param maxFiles the maximum count of rotated files to keep (excluding the current one)
+	 * @param version an identifier of the measured code which is included in each row, eg. the plugin's version
+	 */
+	public TimingSnapshotWriter(@NotNull File directory, @NotNull String fileName, @NotNull Format format,
+			long maxFileBytes, int maxFiles, @NotNull String version) {
+		Validate.isTrue(maxFileBytes > 0, "The maximum file size must be positive");
+		Validate.isTrue(maxFiles >= 0, "The maximum count of files must not be negative");
+		this.directory = directory;
+		this.fileName = fileName;
+		this.format = format;
+		this.maxFileBytes = maxFileBytes;
+		this.maxFiles = maxFiles;
+		this.version = version;
+	}
+	
+	/**
+	 * Creates a new writer which writes the files to the {@code "timings"} folder
+	 * in the specified plugin's data folder with the following options:
+	 * the file size limit is 10 MB, 10 rotated files are kept
+	 * and the plugin's version is included in the rows.
+	 *
+	 * @param plugin the plugin whose data folder to use
+	 * @param format the format of the files
+	 */
+	public TimingSnapshotWriter(@NotNull JavaPlugin plugin, @NotNull Format format) {
+		this(new File(plugin.getDataFolder(), "timings"), "timings", format,
+				10 * 1024 * 1024, 10, plugin.getDescription().getVersion());
+	}
+	
+	
+	
+	/**
+	 * Starts writing the snapshots acquired via {@link TimingManager#snapshot()} periodically.
+	 * Both the snapshot creation and the writing is done on a background thread.
+	 *
+	 * @param plugin the plugin to register the task with
+	 * @param intervalSeconds how often the snapshots should be written, in seconds
+	 * @return the task which can be used to stop the writing
+	 */
+	@NotNull
+	public BukkitTask schedule(@NotNull JavaPlugin plugin, int intervalSeconds) {
+		return Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+			try {
+				write(TimingManager.snapshot());
+			} catch (IOException e) {
+				TriJavaPlugin.log(Level.SEVERE, "Error while writing timing snapshots to: " + directory, e);
+			}
+		}, intervalSeconds * 20L, intervalSeconds * 20L);
+	}
+	
+	/**
+	 * Appends the specified snapshots to the current file, rotating it beforehand if necessary.
+	 * This method does I/O, therefore it should not be called from the main thread.
+	 *
+	 * @param snapshots the snapshots to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized void write(@NotNull List<TimingSnapshot> snapshots) throws IOException {
+		if (snapshots.isEmpty()) {
+			return;
+		}
+		
+		//noinspection ResultOfMethodCallIgnored
+		directory.mkdirs();
+		File file = getFile(0);
+		if (file.length() >= maxFileBytes) {
+			rotate();
+		}
+		
+		boolean header = file.length() == 0;
+		try (Writer writer = new FileWriter(file, Charsets.UTF_8, true)) {
+			if (header && format == Format.CSV) {
+				writer.write("startTimestamp,timestamp,version,id,count,samples,totalNanos,minNanos,meanNanos,"
+						+ "p50Nanos,p90Nanos,p99Nanos,p999Nanos,maxNanos,"
+						+ "decayingMeanNanos,decayingStdevNanos,decayingRatePerSecond\n");
+			}
+			for (TimingSnapshot snapshot : snapshots) {
+				writer.write(format == Format.CSV ? toCsv(snapshot) : toJson(snapshot));
+				writer.write('\n');
+			}
+		}
+	}
+	
+	
+	
+	private void rotate() throws IOException {
+		File oldest = getFile(maxFiles);
+		if (oldest.exists() && !oldest.delete()) {
+			throw new IOException("Unable to delete file: " + oldest);
+		}
+		
+		for (int i = maxFiles - 1; i >= 0; i--) {
+			File source = getFile(i);
+			if (source.exists() && !source.renameTo(getFile(i + 1))) {
+				throw new IOException("Unable to rename file: " + source);
+			}
+		}
+	}
+	
+	private File getFile(int index) {
+		String extension = format == Format.CSV ? ".csv" : ".jsonl";
+		return new File(directory, index == 0 ? fileName + extension : fileName + "." + index + extension);
+	}
+	
+	private String toCsv(TimingSnapshot snapshot) {
+		return snapshot.getStartTimestamp() + "," + snapshot.getTimestamp() + "," + escapeCsv(version) + "," + escapeCsv(snapshot.getId())
+				+ "," + snapshot.getRecordCount() + "," + snapshot.getSampleCount() + "," + snapshot.getTotalNanos()
+				+ "," + snapshot.getMinNanos() + "," + snapshot.getMeanNanos()
+				+ "," + snapshot.getP50Nanos() + "," + snapshot.getP90Nanos()
+				+ "," + snapshot.getP99Nanos() + "," + snapshot.getP999Nanos()
+				+ "," + snapshot.getMaxNanos() + "," + snapshot.getDecayingMeanNanos()
+				+ "," + snapshot.getDecayingStandardDeviationNanos() + "," + snapshot.getDecayingRatePerSecond();
+	}
+	
+	private static String escapeCsv(String value) {
+		if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+	
+	private String toJson(TimingSnapshot snapshot) {
+		JsonObject json = new JsonObject();
+		json.addProperty("startTimestamp", snapshot.getStartTimestamp());
+		json.addProperty("timestamp", snapshot.getTimestamp());
+		json.addProperty("version", version);
+		json.addProperty("id", snapshot.getId());
+		json.addProperty("count", snapshot.getRecordCount());
+		json.addProperty("samples", snapshot.getSampleCount());
+		json.addProperty("totalNanos", snapshot.getTotalNanos());
+		json.addProperty("minNanos", snapshot.getMinNanos());
+		json.addProperty("meanNanos", snapshot.getMeanNanos());
+		json.addProperty("p50Nanos", snapshot.getP50Nanos());
+		json.addProperty("p90Nanos", snapshot.getP90Nanos());
+		json.addProperty("p99Nanos", snapshot.getP99Nanos());
+		json.addProperty("p999Nanos", snapshot.getP999Nanos());
+		json.addProperty("maxNanos", snapshot.getMaxNanos());
+		json.addProperty("decayingMeanNanos", snapshot.getDecayingMeanNanos());
+		json.addProperty("decayingStdevNanos", snapshot.getDecayingStandardDeviationNanos());
+		json.addProperty("decayingRatePerSecond", snapshot.getDecayingRatePerSecond());
+		return json.toString();
+	}
+	
+	
+	
+	/**
+	 * The file formats supported by {@link TimingSnapshotWriter}.
+	 */
+	public enum Format {
+		/**
+		 * Comma separated values with a header row, the file extension is {@code ".csv"}.
+		 */
+		CSV,
+		
+		/**
+		 * One JSON object per line, the file extension is {@code ".jsonl"}.
+		 */
+		JSON_LINES
+	}
+}
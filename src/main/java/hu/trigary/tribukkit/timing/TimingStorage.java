@@ -21,7 +21,44 @@ public abstract class TimingStorage {
 		return id;
 	}
 	
-	abstract void addRecord(int millis);
+	/**
+	 * Adds a new measurement to this instance.
+	 * Must only be called by a single thread, but the
+	 * data may be concurrently read by {@link #merge(TimingStorage)}.
+	 * Sampled measurements represent multiple calls: the counts and sums
+	 * should be estimated by scaling up the measurement by the sample rate.
+	 *
+	 * @param nanos the elapsed time in nanoseconds
+	 * @param sampleRate the count of calls this measurement represents, see {@link TimingKey#setSampleRate(int)}
+	 */
+	abstract void addRecord(long nanos, int sampleRate);
+	
+	/**
+	 * Adds all measurements stored in the specified instance to this instance.
+	 * The specified instance must be of the same type and
+	 * it may be concurrently written by its owner thread.
+	 *
+	 * @param other the instance whose data to copy
+	 */
+	abstract void merge(TimingStorage other);
+	
+	/**
+	 * Copies the data which should survive resets (eg. decaying averages) from the specified instance.
+	 * Called on the owner thread when a new instance replaces the specified one due to a reset.
+	 * The specified instance must be of the same type.
+	 *
+	 * @param previous the instance which is being replaced
+	 */
+	void carryOver(TimingStorage previous) {}
+	
+	/**
+	 * Creates an immutable, structured view of the current contents of this instance.
+	 *
+	 * @param startTimestamp the time of the last reset in milliseconds since the epoch
+	 * @param timestamp the current time in milliseconds since the epoch
+	 * @return the snapshot of this instance
+	 */
+	abstract TimingSnapshot toSnapshot(long startTimestamp, long timestamp);
 	
 	/**
 	 * Formats the contents of this instance into a {@link String}.
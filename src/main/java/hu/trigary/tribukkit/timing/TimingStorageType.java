@@ -0,0 +1,40 @@
+package hu.trigary.tribukkit.timing;
+
+import java.util.function.Function;
+
+/**
+ * The {@link TimingStorage} implementations which the {@link TimingManager} can be configured to use.
+ */
+public enum TimingStorageType {
+	/**
+	 * Use {@link CompactTimingStorage}: minimal overhead, millisecond resolution.
+	 */
+	COMPACT(CompactTimingStorage::new),
+	
+	/**
+	 * Use {@link VerboseTimingStorage}: all measurements are kept, millisecond resolution.
+	 */
+	VERBOSE(VerboseTimingStorage::new),
+	
+	/**
+	 * Use {@link HistogramTimingStorage}: constant memory usage, nanosecond resolution, percentiles.
+	 */
+	HISTOGRAM(HistogramTimingStorage::new),
+	
+	/**
+	 * Use {@link DecayingTimingStorage}: exponentially decaying mean and variance, nanosecond resolution.
+	 */
+	DECAYING(DecayingTimingStorage::new);
+	
+	private final Function<String, TimingStorage> constructor;
+	
+	TimingStorageType(Function<String, TimingStorage> constructor) {
+		this.constructor = constructor;
+	}
+	
+	
+	
+	Function<String, TimingStorage> getConstructor() {
+		return constructor;
+	}
+}
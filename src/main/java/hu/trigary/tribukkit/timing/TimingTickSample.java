@@ -0,0 +1,118 @@
+package hu.trigary.tribukkit.timing;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The timing data of a single server tick, as collected by {@link TimingTickWindow}.
+ * Only the measurements made on the main thread are included.
+ * This class is immutable.
+ */
+public class TimingTickSample {
+	private final long durationNanos;
+	private final long thresholdNanos;
+	private final String[] ids;
+	private final long[] nanos;
+	private final long regionNanos;
+	
+	TimingTickSample(long durationNanos, long thresholdNanos, String[] ids, long[] nanos) {
+		this.durationNanos = durationNanos;
+		this.thresholdNanos = thresholdNanos;
+		this.ids = ids;
+		this.nanos = nanos;
+		long sum = 0;
+		for (long value : nanos) {
+			sum += value;
+		}
+		regionNanos = sum;
+	}
+	
+	
+	
+	/**
+	 * Gets the time elapsed between the start of this tick and the start of the previous one.
+	 *
+	 * @return the duration of this tick in nanoseconds
+	 */
+	@Contract(pure = true)
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+	
+	/**
+	 * Gets the sum of all measured elapsed times during this tick.
+	 *
+	 * @return the time spent in timing regions in nanoseconds
+	 */
+	@Contract(pure = true)
+	public long getRegionNanos() {
+		return regionNanos;
+	}
+	
+	/**
+	 * Gets the time spent in the timing regions with the specified ID during this tick.
+	 *
+	 * @param id the ID of the regions
+	 * @return the time spent in the specified regions in nanoseconds
+	 */
+	@Contract(pure = true)
+	public long getRegionNanos(@NotNull String id) {
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i].equals(id)) {
+				return nanos[i];
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Gets the time spent in each timing region ID during this tick.
+	 * IDs which were not measured in this tick are not present.
+	 *
+	 * @return the time spent in regions in nanoseconds, mapped by their IDs
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public Map<String, Long> getRegionNanosMap() {
+		Map<String, Long> result = new HashMap<>();
+		for (int i = 0; i < ids.length; i++) {
+			result.put(ids[i], nanos[i]);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+	
+	/**
+	 * Gets whether the sum of all measured elapsed times during this tick
+	 * was above the threshold configured in {@link TimingManager#enableTickWindow(int, double)}.
+	 *
+	 * @return whether this tick is considered to be a lag spike caused by the timing regions
+	 */
+	@Contract(pure = true)
+	public boolean isOverThreshold() {
+		return regionNanos > thresholdNanos;
+	}
+	
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("Tick: ")
+				.append(TimingTickWindow.formatMillis(durationNanos)).append(", regions: ")
+				.append(TimingTickWindow.formatMillis(regionNanos));
+		Integer[] order = new Integer[ids.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(nanos[b], nanos[a]));
+		for (int i : order) {
+			builder.append(System.lineSeparator()).append(" - ").append(ids[i]).append(": ")
+					.append(TimingTickWindow.formatMillis(nanos[i]));
+		}
+		return builder.toString();
+	}
+}
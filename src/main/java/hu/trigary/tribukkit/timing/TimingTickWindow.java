@@ -0,0 +1,130 @@
+package hu.trigary.tribukkit.timing;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rolling window of the last N {@link TimingTickSample} instances.
+ * Used to find out which timing regions are responsible for lag spikes.
+ * This class is thread safe.
+ */
+public class TimingTickWindow {
+	/**
+	 * The duration of a tick when the server is running at 20 TPS, in nanoseconds.
+	 */
+	public static final long TICK_BUDGET_NANOS = 50_000_000L;
+	private final TimingTickSample[] samples;
+	private final long thresholdNanos;
+	private int nextIndex;
+	private int size;
+	
+	TimingTickWindow(int capacity, long thresholdNanos) {
+		samples = new TimingTickSample[capacity];
+		this.thresholdNanos = thresholdNanos;
+	}
+	
+	
+	
+	/**
+	 * Gets the count of ticks this window is able to hold.
+	 *
+	 * @return the maximum count of samples
+	 */
+	@Contract(pure = true)
+	public int getCapacity() {
+		return samples.length;
+	}
+	
+	/**
+	 * Gets the threshold above which ticks get flagged.
+	 *
+	 * @return the threshold in nanoseconds
+	 */
+	@Contract(pure = true)
+	public long getThresholdNanos() {
+		return thresholdNanos;
+	}
+	
+	/**
+	 * Gets the samples currently in this window, the oldest one first.
+	 *
+	 * @return a new list containing the samples
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public synchronized List<TimingTickSample> getSamples() {
+		List<TimingTickSample> result = new ArrayList<>(size);
+		for (int i = size; i > 0; i--) {
+			result.add(samples[(nextIndex - i + samples.length) % samples.length]);
+		}
+		return result;
+	}
+	
+	/**
+	 * Gets the samples currently in this window which are
+	 * {@link TimingTickSample#isOverThreshold()}, the oldest one first.
+	 *
+	 * @return a new list containing the flagged samples
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public synchronized List<TimingTickSample> getOverThresholdSamples() {
+		List<TimingTickSample> result = getSamples();
+		result.removeIf(sample -> !sample.isOverThreshold());
+		return result;
+	}
+	
+	/**
+	 * Gets the average portion of the tick budget ({@link #TICK_BUDGET_NANOS})
+	 * taken by each timing region ID, calculated from the samples in this window.
+	 * A value of 1 means that the regions took 50 milliseconds per tick on average.
+	 *
+	 * @return the average budget share, mapped by the region IDs
+	 */
+	@NotNull
+	@Contract(pure = true)
+	public synchronized Map<String, Double> getBudgetShares() {
+		Map<String, Long> sums = new HashMap<>();
+		for (TimingTickSample sample : getSamples()) {
+			sample.getRegionNanosMap().forEach((id, nanos) -> sums.merge(id, nanos, Long::sum));
+		}
+		
+		Map<String, Double> result = new HashMap<>();
+		sums.forEach((id, nanos) -> result.put(id, (double) nanos / size / TICK_BUDGET_NANOS));
+		return Collections.unmodifiableMap(result);
+	}
+	
+	
+	
+	synchronized void add(@NotNull TimingTickSample sample) {
+		samples[nextIndex] = sample;
+		nextIndex = (nextIndex + 1) % samples.length;
+		size = Math.min(size + 1, samples.length);
+	}
+	
+	
+	
+	@Override
+	public synchronized String toString() {
+		List<TimingTickSample> flagged = getOverThresholdSamples();
+		StringBuilder builder = new StringBuilder("Tick window: ").append(size).append(" ticks, ")
+				.append(flagged.size()).append(" over the threshold of ").append(formatMillis(thresholdNanos));
+		getBudgetShares().entrySet().stream()
+				.sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+				.forEach(entry -> builder.append(System.lineSeparator()).append(" - ").append(entry.getKey())
+						.append(": ").append(String.format("%.2f", entry.getValue() * 100)).append("% of budget"));
+		flagged.stream().max((a, b) -> Long.compare(a.getRegionNanos(), b.getRegionNanos()))
+				.ifPresent(worst -> builder.append(System.lineSeparator()).append("Worst ").append(worst));
+		return builder.toString();
+	}
+	
+	static String formatMillis(long nanos) {
+		return String.format("%.3f ms", nanos / 1000000d);
+	}
+}
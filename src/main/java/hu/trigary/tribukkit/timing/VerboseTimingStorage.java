@@ -1,16 +1,37 @@
 package hu.trigary.tribukkit.timing;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 /**
  * A {@link TimingStorage} implementation which has an O(N) space complexity.
  * {@link CompactTimingStorage} should be enough for most cases,
  * but this class is useful for graphs, etc.
+ * If the ID is sampled (see {@link TimingKey#setSampleRate(int)}), then only the samples are kept.
  */
 public class VerboseTimingStorage extends TimingStorage {
-	private final List<Integer> records = new ArrayList<>();
+	private static final VarHandle RECORDS;
+	private static final VarHandle SIZE;
+	private static final VarHandle COUNT;
+	private static final VarHandle MILLIS_SUM;
+	private int[] records = new int[16];
+	private int size;
+	private int count;
+	private long millisSum;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			RECORDS = lookup.findVarHandle(VerboseTimingStorage.class, "records", int[].class);
+			SIZE = lookup.findVarHandle(VerboseTimingStorage.class, "size", int.class);
+			COUNT = lookup.findVarHandle(VerboseTimingStorage.class, "count", int.class);
+			MILLIS_SUM = lookup.findVarHandle(VerboseTimingStorage.class, "millisSum", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 	
 	VerboseTimingStorage(String id) {
 		super(id);
@@ -18,14 +39,35 @@ public class VerboseTimingStorage extends TimingStorage {
 	
 	
 	
+	/**
+	 * Gets the count of measurements associated with this ID which took place.
+	 * If the ID is sampled, then this is an estimate.
+	 *
+	 * @return the count of measurements linked to this ID
+	 */
+	public int getRecordCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the count of measurements which were actually measured.
+	 * This is the same as {@link #getRecordCount()}, unless the ID is sampled.
+	 *
+	 * @return the count of measured samples linked to this ID
+	 */
+	public int getSampleCount() {
+		return size;
+	}
+	
 	/**
 	 * Gets all measured elapsed times in milliseconds.
-	 * The entries are ordered.
+	 * The entries measured on the same thread are in chronological order.
+	 * If the ID is sampled, then only the samples are returned.
 	 *
 	 * @return all measured delta times
 	 */
 	public IntStream getRawMillis() {
-		return records.stream().mapToInt(i -> i);
+		return Arrays.stream(records, 0, size);
 	}
 	
 	/**
@@ -43,7 +85,7 @@ public class VerboseTimingStorage extends TimingStorage {
 	 * @return the median of delta times
 	 */
 	public int getMedianMillis() {
-		return getRawMillis().sorted().skip(records.size() / 2).findFirst().orElse(-1);
+		return getRawMillis().sorted().skip(size / 2).findFirst().orElse(-1);
 	}
 	
 	/**
@@ -67,8 +109,49 @@ public class VerboseTimingStorage extends TimingStorage {
 	
 	
 	@Override
-	void addRecord(int millis) {
-		records.add(millis);
+	void addRecord(long nanos, int sampleRate) {
+		//single writer: the array is published before the size which makes it readable
+		int[] array = records;
+		if (size == array.length) {
+			array = Arrays.copyOf(array, size * 2);
+			RECORDS.setRelease(this, array);
+		}
+		int millis = (int) (nanos / 1000000);
+		array[size] = millis;
+		SIZE.setRelease(this, size + 1);
+		COUNT.setRelease(this, count + sampleRate);
+		MILLIS_SUM.setRelease(this, millisSum + (long) millis * sampleRate);
+	}
+	
+	@Override
+	void merge(TimingStorage other) {
+		int otherSize = (int) SIZE.getAcquire(other);
+		int[] otherRecords = (int[]) RECORDS.getAcquire(other);
+		if (size + otherSize > records.length) {
+			records = Arrays.copyOf(records, Math.max(size + otherSize, records.length * 2));
+		}
+		System.arraycopy(otherRecords, 0, records, size, otherSize);
+		size += otherSize;
+		count += (int) COUNT.getAcquire(other);
+		millisSum += (long) MILLIS_SUM.getAcquire(other);
+	}
+	
+	@Override
+	TimingSnapshot toSnapshot(long startTimestamp, long timestamp) {
+		int[] sorted = Arrays.copyOf(records, size);
+		Arrays.sort(sorted);
+		return new TimingSnapshot(startTimestamp, timestamp, getId(), count, size, millisSum * 1000000,
+				size == 0 ? -1 : sorted[0] * 1000000L, getPercentileNanos(sorted, 50),
+				getPercentileNanos(sorted, 90), getPercentileNanos(sorted, 99),
+				getPercentileNanos(sorted, 99.9), size == 0 ? -1 : sorted[size - 1] * 1000000L);
+	}
+	
+	private static long getPercentileNanos(int[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return -1;
+		}
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.max(0, rank - 1)] * 1000000L;
 	}
 	
 	
@@ -3,6 +3,7 @@ package hu.trigary.tribukkit.yml;
 import hu.trigary.tribukkit.data.BlockLocation;
 import hu.trigary.tribukkit.data.LazyLocation;
 import hu.trigary.tribukkit.json.*;
+import hu.trigary.tribukkit.region.Region;
 import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.inventory.ItemStack;
@@ -167,6 +168,36 @@ public class YmlAdapters {
 	
 	
 	
+	/**
+	 * Sets the specified path to the given value.
+	 * If the value is null, the entry will be removed.
+	 * Any existing entry will be replaced, regardless of what the new value is.
+	 *
+	 * @param section the section to modify
+	 * @param key the path to modify
+	 * @param region the new value
+	 */
+	public static void setRegion(@NotNull ConfigurationSection section,
+			@NotNull String key, @Nullable Region region) {
+		section.set(key, region == null ? null : JsonRegionAdapter.serialize(region));
+	}
+	
+	/**
+	 * Gets the requested value from the specified path.
+	 * If the path is not set, but a default value has been specified, this will return the default value.
+	 * If the path is not set and no default value was specified, this will return null.
+	 *
+	 * @param section the section to query
+	 * @param key the path of the value
+	 * @return the requested (possibly default) value
+	 */
+	public static Region getRegion(@NotNull ConfigurationSection section, @NotNull String key) {
+		String value = section.getString(key);
+		return value == null ? null : JsonRegionAdapter.deserialize(value);
+	}
+	
+	
+	
 	/**
 	 * Sets the specified path to the given value.
 	 * If the value is null, the entry will be removed.